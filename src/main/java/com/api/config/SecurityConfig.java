@@ -1,27 +1,39 @@
 package com.api.config;
 
+import com.api.config.security.BoundedPasswordEncoder;
 import com.api.config.security.JwtAuthenticationFilter;
 import com.api.config.security.JwtAuthorizationFilter;
+import com.api.config.security.PasswordHashingExecutor;
+import com.api.config.security.TokenVersionCache;
+import com.api.repositories.UserRepository;
 import com.api.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.metrics.MetricsEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
-import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import static com.api.models.enums.Role.ROLE_ADMIN;
+
 @EnableWebSecurity
-@EnableGlobalMethodSecurity(prePostEnabled = true)
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Autowired
     UserService userService;
 
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    TokenVersionCache tokenVersionCache;
+
     @Bean
-    public BCryptPasswordEncoder bCryptPasswordEncoder () {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(PasswordHashingExecutor passwordHashingExecutor) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), passwordHashingExecutor);
     }
 
     @Override
@@ -29,9 +41,10 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         http.cors().and().csrf().disable().authorizeRequests()
                 .antMatchers(HttpMethod.POST, "/signup").permitAll()
                 .antMatchers(HttpMethod.POST, "/login").permitAll()
+                .requestMatchers(EndpointRequest.to(MetricsEndpoint.class)).hasAuthority(ROLE_ADMIN.name())
                 .and()
                 .addFilter(new JwtAuthenticationFilter(authenticationManager()))
-                .addFilter(new JwtAuthorizationFilter(authenticationManager(), userService));
+                .addFilter(new JwtAuthorizationFilter(authenticationManager(), userRepository, tokenVersionCache));
     }
 
 }
@@ -0,0 +1,176 @@
+package com.api.config.idempotency;
+
+import com.api.config.security.JwtAuthorizationFilter;
+import com.api.models.ExceptionResponseModel;
+import com.api.models.IdempotencyRecordModel;
+import com.api.services.IdempotencyService;
+import com.api.storage.Checksums;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.filter.OrderedHiddenHttpMethodFilter;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static com.api.config.security.SecurityConstants.HEADER_STRING;
+
+/**
+ * Makes POSTs to idempotency.paths safe to retry. A request carrying an
+ * Idempotency-Key header claims the key, scoped to its user, before
+ * anything reads its body, and its response is stored once it completes.
+ * A retry with the same key gets the stored response without the request
+ * running again or its upload being read.
+ *
+ * Runs ahead of the filter which parses multipart bodies for a _method
+ * parameter, and so also ahead of authentication. The user is therefore
+ * taken from a bearer token whose signature is checked here; a request
+ * without one is passed on untouched, to be refused by authentication,
+ * and 401 and 403 responses are never stored.
+ */
+@Component
+@Order(OrderedHiddenHttpMethodFilter.DEFAULT_ORDER - 2)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Value("${idempotency.paths:/submissions/create,/comment/add/*}")
+    private String[] paths;
+
+    @Value("${idempotency.max-body-bytes:8192}")
+    private int maxBodyBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.POST.matches(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+                || request.getHeader(HEADER_STRING) == null) {
+            return true;
+        }
+        String path = urlPathHelper.getPathWithinApplication(request);
+        for (String pattern : paths) {
+            if (pathMatcher.match(pattern.trim(), path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, "Invalid " + IDEMPOTENCY_KEY_HEADER + " header");
+            return;
+        }
+        Integer userId = JwtAuthorizationFilter.verifiedUserId(request.getHeader(HEADER_STRING));
+        if (userId == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String id = digest(String.valueOf(userId), key);
+        String fingerprint = digest(request.getMethod(), urlPathHelper.getPathWithinApplication(request), request.getQueryString());
+
+        IdempotencyRecordModel existing = idempotencyService.claim(id, fingerprint);
+        if (existing != null) {
+            if (!existing.getFingerprint().equals(fingerprint)) {
+                reject(response, HttpStatus.UNPROCESSABLE_ENTITY, IDEMPOTENCY_KEY_HEADER + " was used for a different request");
+            } else if (existing.getStatus() == null) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                reject(response, HttpStatus.CONFLICT, "A request with this " + IDEMPOTENCY_KEY_HEADER + " is in progress");
+            } else {
+                replay(response, existing);
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper buffered = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, buffered);
+            byte[] body = buffered.getContentAsByteArray();
+            if (isStored(buffered.getStatus()) && body.length <= maxBodyBytes) {
+                idempotencyService.complete(id, buffered.getStatus(), buffered.getContentType(), body);
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                idempotencyService.release(id);
+            }
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Method which decides whether a response is kept for replay. Server
+     * errors may not recur, and authentication failures say nothing about
+     * the request, so a retry of either runs again
+     *
+     * @param status the response status
+     * @return boolean whether the response is kept
+     */
+    private static boolean isStored(int status) {
+        return status < HttpStatus.INTERNAL_SERVER_ERROR.value()
+                && status != HttpStatus.UNAUTHORIZED.value() && status != HttpStatus.FORBIDDEN.value();
+    }
+
+    private static void replay(HttpServletResponse response, IdempotencyRecordModel record) throws IOException {
+        response.setStatus(record.getStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (record.getContentType() != null) {
+            response.setContentType(record.getContentType());
+        }
+        byte[] body = record.getBody() != null ? record.getBody() : new byte[0];
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        new ObjectMapper().writeValue(response.getOutputStream(), new ExceptionResponseModel(message, status.value()));
+    }
+
+    /**
+     * Method which hashes a list of request attributes into a hex encoded SHA-256
+     *
+     * @param parts the attributes, null ones are hashed as empty
+     * @return String the digest
+     */
+    private static String digest(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update((part != null ? part : "").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return Checksums.toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
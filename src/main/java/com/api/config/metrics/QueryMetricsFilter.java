@@ -0,0 +1,164 @@
+package com.api.config.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the SQL statements each request runs, from the security
+ * filters through to JSON serialization. Counts and JDBC time are
+ * published per endpoint as the http.server.requests.queries and
+ * http.server.requests.query.time histograms, and requests running
+ * more than query-metrics.budget statements are logged.
+ *
+ * With query-metrics.headers (the dev profile) the counts are also
+ * returned as X-Query-Count and X-Query-Time headers. Since lazy loads
+ * run while the body is written, JSON responses are buffered for this.
+ * Any other response (file downloads, NDJSON exports, ZIP bundles) is
+ * written straight through, keeping its Content-Length and sendfile, and
+ * only gets the headers if it has not been committed by the time it ends.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryMetricsFilter.class);
+
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    public static final String QUERY_TIME_HEADER = "X-Query-Time";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${query-metrics.budget:25}")
+    private int budget;
+
+    @Value("${query-metrics.headers:false}")
+    private boolean headers;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        JsonBufferingResponseWrapper buffered = headers ? new JsonBufferingResponseWrapper(response) : null;
+        QueryStats stats = QueryStats.start();
+        try {
+            chain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            QueryStats.stop();
+            record(request, stats);
+            if (buffered != null) {
+                buffered.setHeader(QUERY_COUNT_HEADER, String.valueOf(stats.getCount()));
+                buffered.setHeader(QUERY_TIME_HEADER, stats.getTime(TimeUnit.MILLISECONDS) + "ms");
+                buffered.copyBodyToResponse();
+            }
+        }
+    }
+
+    /**
+     * Response wrapper which buffers the body only when the content type
+     * is JSON, decided when the body or its length is first touched
+     */
+    private static class JsonBufferingResponseWrapper extends ContentCachingResponseWrapper {
+
+        private Boolean buffering;
+
+        JsonBufferingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        private boolean isBuffering() {
+            if (buffering == null) {
+                buffering = isJson(getContentType());
+            }
+            return buffering;
+        }
+
+        private static boolean isJson(String contentType) {
+            if (contentType == null) {
+                return false;
+            }
+            try {
+                MediaType type = MediaType.parseMediaType(contentType);
+                return MediaType.APPLICATION_JSON.isCompatibleWith(type) || type.getSubtype().endsWith("+json");
+            } catch (InvalidMediaTypeException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return isBuffering() ? super.getOutputStream() : getResponse().getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return isBuffering() ? super.getWriter() : getResponse().getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (isBuffering()) {
+                super.flushBuffer();
+            } else {
+                getResponse().flushBuffer();
+            }
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            if (isBuffering()) {
+                super.setContentLength(len);
+            } else {
+                getResponse().setContentLength(len);
+            }
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (isBuffering()) {
+                super.setContentLengthLong(len);
+            } else {
+                getResponse().setContentLengthLong(len);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, QueryStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNMAPPED";
+        DistributionSummary.builder("http.server.requests.queries")
+                .tags("method", request.getMethod(), "uri", uri)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(stats.getCount());
+        Timer.builder("http.server.requests.query.time")
+                .tags("method", request.getMethod(), "uri", uri)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(stats.getTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        if (stats.getCount() > budget) {
+            LOGGER.warn("{} {} ran {} queries in {} ms, over the budget of {}", request.getMethod(), request.getRequestURI(),
+                    stats.getCount(), stats.getTime(TimeUnit.MILLISECONDS), budget);
+        }
+    }
+}
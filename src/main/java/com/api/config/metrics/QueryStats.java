@@ -0,0 +1,96 @@
+package com.api.config.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Number of SQL statements run, and the time spent running them, by the
+ * current thread since recording started. {@link QueryMetricsFilter}
+ * records each request; tests can measure a block of code with
+ * {@link #measure(Callable)} and check it with {@link #expectAtMost(int)}.
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final QueryStats outer;
+    private int count;
+    private long nanos;
+
+    private QueryStats(QueryStats outer) {
+        this.outer = outer;
+    }
+
+    /**
+     * Method which starts recording the statements of the current thread,
+     * nested inside any recording already running
+     *
+     * @return QueryStats the new recording
+     */
+    public static QueryStats start() {
+        QueryStats stats = new QueryStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Method which stops the innermost recording of the current thread
+     */
+    public static void stop() {
+        QueryStats stats = CURRENT.get();
+        if (stats == null) {
+            return;
+        }
+        if (stats.outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(stats.outer);
+        }
+    }
+
+    /**
+     * Method which records the statements run by a block of code
+     *
+     * @param block the code to measure
+     * @return QueryStats the statements the block ran
+     * @throws Exception if the block fails
+     */
+    public static QueryStats measure(Callable<?> block) throws Exception {
+        QueryStats stats = start();
+        try {
+            block.call();
+        } finally {
+            stop();
+        }
+        return stats;
+    }
+
+    static void record(long nanos) {
+        for (QueryStats stats = CURRENT.get(); stats != null; stats = stats.outer) {
+            stats.count++;
+            stats.nanos += nanos;
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getTime(TimeUnit unit) {
+        return unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Method which fails when more statements ran than expected
+     *
+     * @param max the highest acceptable number of statements
+     * @return QueryStats this recording
+     * @throws AssertionError if the budget was exceeded
+     */
+    public QueryStats expectAtMost(int max) {
+        if (count > max) {
+            throw new AssertionError("Expected at most " + max + " queries but " + count + " ran");
+        }
+        return this;
+    }
+}
@@ -0,0 +1,36 @@
+package com.api.config.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Hibernate session listener which reports every statement and batch
+ * execution, including lazy loads outside a transaction, to the
+ * {@link QueryStats} of the current thread. Registered for all sessions
+ * through hibernate.session.events.auto.
+ */
+public class QueryStatsListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private long start;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        start = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        QueryStats.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        start = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        QueryStats.record(System.nanoTime() - start);
+    }
+}
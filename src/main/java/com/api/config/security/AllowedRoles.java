@@ -0,0 +1,25 @@
+package com.api.config.security;
+
+import com.api.models.enums.Role;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restricts a controller method, or every method of a controller, to
+ * users holding at least one of the given roles. The roles are turned
+ * into a bitmask once when the method is first inspected, and each
+ * call is checked against the role mask of the {@link TokenPrincipal}.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface AllowedRoles {
+
+    Role[] value();
+}
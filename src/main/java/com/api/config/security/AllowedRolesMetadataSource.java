@@ -0,0 +1,37 @@
+package com.api.config.security;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.method.AbstractMethodSecurityMetadataSource;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Resolves {@link AllowedRoles} on a method, falling back to its class,
+ * into a {@link RoleMaskAttribute}. Spring inspects every bean method
+ * while creating the security proxies at startup and caches the result,
+ * so the annotation is read once per method, not once per call.
+ */
+public class AllowedRolesMetadataSource extends AbstractMethodSecurityMetadataSource {
+
+    @Override
+    public Collection<ConfigAttribute> getAttributes(Method method, Class<?> targetClass) {
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        AllowedRoles allowed = AnnotationUtils.findAnnotation(specificMethod, AllowedRoles.class);
+        if (allowed == null) {
+            allowed = AnnotationUtils.findAnnotation(specificMethod.getDeclaringClass(), AllowedRoles.class);
+        }
+        if (allowed == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new RoleMaskAttribute(allowed.value()));
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAllConfigAttributes() {
+        return null;
+    }
+}
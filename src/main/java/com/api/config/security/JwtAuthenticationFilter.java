@@ -1,14 +1,19 @@
 package com.api.config.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.api.controllers.exceptions.ServiceUnavailableException;
+import com.api.models.ExceptionResponseModel;
 import com.api.models.UserModel;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -36,13 +41,44 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
             return authenticationManager.authenticate((new UsernamePasswordAuthenticationToken(userModel.getEmail(), userModel.getPassword())));
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
+        } catch (ServiceUnavailableException e) {
+            rejectOverloaded(response, e);
+            return null;
+        } catch (InternalAuthenticationServiceException e) {
+            if (e.getCause() instanceof ServiceUnavailableException) {
+                rejectOverloaded(response, (ServiceUnavailableException) e.getCause());
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Method which answers a login with 503 when the password
+     * hashing pool is saturated
+     *
+     * @param response the servlet response
+     * @param e the rejection
+     */
+    private static void rejectOverloaded(HttpServletResponse response, ServiceUnavailableException e) {
+        try {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            new ObjectMapper().writeValue(response.getOutputStream(), new ExceptionResponseModel(e.getMessage(), 503));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage());
         }
     }
 
     @Override
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response, FilterChain chain, Authentication authResult) throws IOException, ServletException {
         ZonedDateTime expirationTimeUTC = ZonedDateTime.now(ZoneOffset.UTC).plus(EXPIRATION_TIME, ChronoUnit.MILLIS);
-        String token = Jwts.builder().setSubject(((User)authResult.getPrincipal()).getUsername())
+        TokenPrincipal principal = (TokenPrincipal) authResult.getPrincipal();
+        String token = Jwts.builder().setSubject(principal.getUsername())
+                .claim(CLAIM_USER_ID, principal.getId())
+                .claim(CLAIM_ROLES, RoleBits.toMask(principal.getRoles()))
+                .claim(CLAIM_TOKEN_VERSION, principal.getTokenVersion())
                 .setExpiration(Date.from(expirationTimeUTC.toInstant()))
                 .signWith(SignatureAlgorithm.HS256, SECRET)
                 .compact();
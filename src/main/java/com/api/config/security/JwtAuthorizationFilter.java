@@ -1,11 +1,12 @@
 package com.api.config.security;
 
-import com.api.services.UserService;
+import com.api.repositories.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -16,11 +17,13 @@ import static com.api.config.security.SecurityConstants.*;
 
 public class JwtAuthorizationFilter extends BasicAuthenticationFilter {
     
-    private final UserService userService;
+    private final UserRepository userRepository;
+    private final TokenVersionCache tokenVersionCache;
 
-    public JwtAuthorizationFilter(AuthenticationManager authenticationManager, UserService userService ) {
+    public JwtAuthorizationFilter(AuthenticationManager authenticationManager, UserRepository userRepository, TokenVersionCache tokenVersionCache) {
         super(authenticationManager);
-        this.userService = userService;
+        this.userRepository = userRepository;
+        this.tokenVersionCache = tokenVersionCache;
     }
 
     @Override
@@ -36,16 +39,50 @@ public class JwtAuthorizationFilter extends BasicAuthenticationFilter {
         chain.doFilter(request, response);
     }
 
+    /**
+     * Method which builds the authentication from the token claims alone.
+     * Only the token version is checked against the user, through a cache
+     *
+     * @param request the servlet request
+     * @return UsernamePasswordAuthenticationToken the authentication, or null
+     * if the token lacks claims or has been revoked
+     */
     private UsernamePasswordAuthenticationToken getAuthenticationToken (HttpServletRequest request) {
         String token = request.getHeader(HEADER_STRING);
 
         if(token == null) return null;
 
-        String email = Jwts.parser().setSigningKey(SECRET)
+        Claims claims = Jwts.parser().setSigningKey(SECRET)
                 .parseClaimsJws(token.replace(TOKEN_PREFIX, ""))
-                .getBody()
-                .getSubject();
-        UserDetails userModel = userService.loadUserByUsername(email);
-        return email != null ? new UsernamePasswordAuthenticationToken(userModel, null, userModel.getAuthorities()) : null;
+                .getBody();
+        String email = claims.getSubject();
+        Integer id = claims.get(CLAIM_USER_ID, Integer.class);
+        Integer roles = claims.get(CLAIM_ROLES, Integer.class);
+        Integer version = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        // Tokens issued before the claims were introduced must be renewed
+        if (email == null || id == null || roles == null || version == null) return null;
+        if (!tokenVersionCache.isCurrent(id, version, userRepository::findTokenVersionById)) return null;
+        TokenPrincipal principal = new TokenPrincipal(id, email, null, RoleBits.fromMask(roles), version);
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
     }
-}
\ No newline at end of file
+
+    /**
+     * Method which reads the user id of a token after checking its signature
+     * and expiry, without any lookup, for the filters which run ahead of
+     * authentication. A revoked token is not detected
+     *
+     * @param header the Authorization header, may be null
+     * @return Integer the user id, or null if the token is missing or invalid
+     */
+    public static Integer verifiedUserId(String header) {
+        if (header == null || !header.startsWith(TOKEN_PREFIX)) return null;
+        try {
+            return Jwts.parser().setSigningKey(SECRET)
+                    .parseClaimsJws(header.replace(TOKEN_PREFIX, ""))
+                    .getBody()
+                    .get(CLAIM_USER_ID, Integer.class);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
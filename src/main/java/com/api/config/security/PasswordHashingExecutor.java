@@ -0,0 +1,150 @@
+package com.api.config.security;
+
+import com.api.controllers.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead for password hashing. BCrypt runs on a fixed number of
+ * threads behind a bounded queue, so a burst of logins or signups
+ * cannot occupy every request thread. When the queue is full, or a
+ * hash waits longer than the configured limit, callers get a
+ * ServiceUnavailableException carrying a Retry-After hint.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final long retryAfterSeconds;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(@Value("${security.password-hashing.threads:4}") int threads,
+                                   @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${security.password-hashing.max-wait-ms:10000}") long maxWaitMillis,
+                                   @Value("${security.password-hashing.retry-after-seconds:5}") long retryAfterSeconds,
+                                   MeterRegistry registry) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.encodeTimer = Timer.builder("password.hashing.latency").tag("operation", "encode").register(registry);
+        this.matchesTimer = Timer.builder("password.hashing.latency").tag("operation", "matches").register(registry);
+        this.rejected = Counter.builder("password.hashing.rejected").register(registry);
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size()).register(registry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+    }
+
+    /**
+     * Method which hashes a password on the hashing pool
+     *
+     * @param task the hashing task
+     * @return String the hash
+     */
+    public String encode(Callable<String> task) {
+        return run(task, encodeTimer);
+    }
+
+    /**
+     * Method which verifies a password on the hashing pool
+     *
+     * @param task the verification task
+     * @return boolean whether the password matches
+     */
+    public boolean matches(Callable<Boolean> task) {
+        return run(task, matchesTimer);
+    }
+
+    /**
+     * Method which hashes a batch of passwords on the hashing pool,
+     * keeping at most one hash per pool thread in flight so a bulk
+     * import takes turns with logins instead of filling the queue
+     *
+     * @param tasks the hashing tasks
+     * @return List<String> the hashes, in task order
+     */
+    public List<String> encodeAll(List<Callable<String>> tasks) {
+        List<String> hashes = new ArrayList<>(tasks.size());
+        Deque<Future<String>> inFlight = new ArrayDeque<>();
+        try {
+            for (Callable<String> task : tasks) {
+                if (inFlight.size() >= executor.getMaximumPoolSize()) {
+                    hashes.add(await(inFlight.poll()));
+                }
+                inFlight.add(submit(task, encodeTimer));
+            }
+            while (!inFlight.isEmpty()) {
+                hashes.add(await(inFlight.poll()));
+            }
+        } finally {
+            inFlight.forEach(e -> e.cancel(true));
+        }
+        return hashes;
+    }
+
+    private <T> T run(Callable<T> task, Timer timer) {
+        return await(submit(task, timer));
+    }
+
+    private <T> Future<T> submit(Callable<T> task, Timer timer) {
+        try {
+            return executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many concurrent logins, try again later", retryAfterSeconds);
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many concurrent logins, try again later", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,48 @@
+package com.api.config.security;
+
+import com.api.models.enums.Role;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Compact bitmask encoding of roles for the token roles claim,
+ * one bit per Role constant by ordinal. New roles must therefore
+ * be appended to the enum, never inserted or reordered.
+ */
+public final class RoleBits {
+
+    private RoleBits() {
+    }
+
+    /**
+     * Method which encodes roles as a bitmask
+     *
+     * @param roles the roles
+     * @return int the bitmask
+     */
+    public static int toMask(Collection<Role> roles) {
+        int mask = 0;
+        for (Role role : roles) {
+            mask |= 1 << role.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Method which decodes a bitmask into roles, ignoring unknown bits
+     *
+     * @param mask the bitmask
+     * @return Set<Role> the roles
+     */
+    public static Set<Role> fromMask(int mask) {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : Role.values()) {
+            if ((mask & (1 << role.ordinal())) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+}
@@ -0,0 +1,38 @@
+package com.api.config.security;
+
+import com.api.models.enums.Role;
+import org.springframework.security.access.ConfigAttribute;
+
+import java.util.Arrays;
+
+/**
+ * Security attribute holding the precomputed role mask of an
+ * {@link AllowedRoles} annotation.
+ */
+public class RoleMaskAttribute implements ConfigAttribute {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int mask;
+
+    public RoleMaskAttribute(Role... roles) {
+        this.mask = RoleBits.toMask(Arrays.asList(roles));
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Not expressible as a String, so only {@link RoleMaskVoter} votes on it
+     */
+    @Override
+    public String getAttribute() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "AllowedRoles" + RoleBits.fromMask(mask);
+    }
+}
@@ -0,0 +1,41 @@
+package com.api.config.security;
+
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.core.Authentication;
+
+import java.util.Collection;
+
+/**
+ * Grants access when the role mask of the {@link TokenPrincipal}
+ * shares a bit with the mask of a {@link RoleMaskAttribute}, a single
+ * AND in place of evaluating a chain of hasRole expressions.
+ */
+public class RoleMaskVoter implements AccessDecisionVoter<Object> {
+
+    @Override
+    public boolean supports(ConfigAttribute attribute) {
+        return attribute instanceof RoleMaskAttribute;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    public int vote(Authentication authentication, Object object, Collection<ConfigAttribute> attributes) {
+        int vote = ACCESS_ABSTAIN;
+        for (ConfigAttribute attribute : attributes) {
+            if (attribute instanceof RoleMaskAttribute) {
+                Object principal = authentication.getPrincipal();
+                if (principal instanceof TokenPrincipal
+                        && (((TokenPrincipal) principal).getRoleMask() & ((RoleMaskAttribute) attribute).getMask()) != 0) {
+                    return ACCESS_GRANTED;
+                }
+                vote = ACCESS_DENIED;
+            }
+        }
+        return vote;
+    }
+}
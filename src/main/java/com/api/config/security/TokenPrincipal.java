@@ -0,0 +1,112 @@
+package com.api.config.security;
+
+import com.api.models.enums.Role;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Authenticated user as carried by a token: id, email, roles and the
+ * token version it was issued for. Built from the user at login and
+ * from the token claims on every later request.
+ */
+public class TokenPrincipal implements UserDetails, CredentialsContainer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int id;
+    private final String email;
+    private String password;
+    private final Set<Role> roles;
+    private final int roleMask;
+    private final int tokenVersion;
+    private final List<GrantedAuthority> authorities;
+
+    public TokenPrincipal(int id, String email, String password, Set<Role> roles, int tokenVersion) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.roles = roles;
+        this.roleMask = RoleBits.toMask(roles);
+        this.tokenVersion = tokenVersion;
+        List<GrantedAuthority> list = new ArrayList<>(roles.size());
+        for (Role role : roles) {
+            list.add(new SimpleGrantedAuthority(role.name()));
+        }
+        this.authorities = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Method which returns the id of the authenticated user
+     *
+     * @param authentication user authentication
+     * @return int the user id
+     */
+    public static int idOf(Authentication authentication) {
+        return ((TokenPrincipal) authentication.getPrincipal()).getId();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Set<Role> getRoles() {
+        return roles;
+    }
+
+    public int getRoleMask() {
+        return roleMask;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+}
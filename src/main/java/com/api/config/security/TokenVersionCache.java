@@ -0,0 +1,53 @@
+package com.api.config.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the current token version of each user, so tokens
+ * can be checked for revocation without a database round trip. Entries
+ * expire after a TTL and are evicted by W-TinyLFU once the size cap is
+ * reached; revoking tokens invalidates the entry explicitly.
+ */
+@Component
+public class TokenVersionCache {
+
+    private final Cache<Integer, Integer> cache;
+
+    public TokenVersionCache(@Value("${security.token-version-cache.max-size:10000}") long maxSize,
+                             @Value("${security.token-version-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Method which checks a token version against the current one of a user
+     *
+     * @param userId the user id
+     * @param tokenVersion the version the token was issued for
+     * @param loader loads the current version on a miss, returning null if the user does not exist
+     * @return boolean whether the token is still valid
+     */
+    public boolean isCurrent(int userId, int tokenVersion, Function<Integer, Integer> loader) {
+        Integer current = cache.get(userId, loader);
+        return current != null && current == tokenVersion;
+    }
+
+    /**
+     * Method which drops the cached version of a user
+     *
+     * @param userId the user id
+     */
+    public void invalidate(Integer userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+}
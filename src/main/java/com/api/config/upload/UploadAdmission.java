@@ -0,0 +1,113 @@
+package com.api.config.upload;
+
+import com.api.controllers.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for uploads. At most upload-admission.max-in-flight
+ * uploads are accepted at a time, together declaring at most
+ * upload-admission.max-bytes, so a burst of uploads cannot fill the
+ * multipart spool and the blob store incoming directory. A single user
+ * holds at most upload-admission.max-per-user of the slots. Admission
+ * never waits: an upload which does not fit is refused with a
+ * ServiceUnavailableException carrying a Retry-After hint.
+ */
+@Component
+public class UploadAdmission {
+
+    private final Semaphore slots;
+    private final long maxBytes;
+    private final int maxPerUser;
+    private final long retryAfterSeconds;
+    private final ConcurrentMap<Integer, Integer> userSlots = new ConcurrentHashMap<>();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final Counter rejected;
+
+    public UploadAdmission(@Value("${upload-admission.max-in-flight:16}") int maxInFlight,
+                           @Value("${upload-admission.max-bytes:1073741824}") long maxBytes,
+                           @Value("${upload-admission.max-per-user:2}") int maxPerUser,
+                           @Value("${upload-admission.retry-after-seconds:10}") long retryAfterSeconds,
+                           MeterRegistry registry) {
+        this.slots = new Semaphore(maxInFlight);
+        this.maxBytes = maxBytes;
+        this.maxPerUser = maxPerUser;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.rejected = Counter.builder("upload.admission.rejected").register(registry);
+        Gauge.builder("upload.admission.in-flight", slots, s -> maxInFlight - s.availablePermits()).register(registry);
+        Gauge.builder("upload.admission.reserved-bytes", reservedBytes, AtomicLong::get).register(registry);
+    }
+
+    /**
+     * Method which reserves a slot and part of the byte budget for an upload
+     *
+     * @param userId the id of the uploading user
+     * @param bytes the declared size of the upload
+     * @throws ServiceUnavailableException if the user already holds their share of
+     * the slots, or no slot or not enough of the budget is free
+     */
+    public void admit(int userId, long bytes) throws ServiceUnavailableException {
+        boolean[] acquired = {false};
+        userSlots.compute(userId, (id, held) -> {
+            if (held != null && held >= maxPerUser) {
+                return held;
+            }
+            acquired[0] = true;
+            return held == null ? 1 : held + 1;
+        });
+        if (!acquired[0]) {
+            throw reject("Too many uploads in progress for this user, try again later");
+        }
+        if (!slots.tryAcquire()) {
+            releaseUserSlot(userId);
+            throw reject("Too many uploads in progress, try again later");
+        }
+        long reserved;
+        do {
+            reserved = reservedBytes.get();
+            if (reserved + bytes > maxBytes) {
+                slots.release();
+                releaseUserSlot(userId);
+                throw reject("Upload capacity exhausted, try again later");
+            }
+        } while (!reservedBytes.compareAndSet(reserved, reserved + bytes));
+    }
+
+    /**
+     * Method which returns the slot and bytes of a finished upload
+     *
+     * @param userId the id of the uploading user
+     * @param bytes the size the upload was admitted with
+     */
+    public void release(int userId, long bytes) {
+        reservedBytes.addAndGet(-bytes);
+        slots.release();
+        releaseUserSlot(userId);
+    }
+
+    /**
+     * Method which returns the byte budget shared by all uploads
+     *
+     * @return long the budget in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private void releaseUserSlot(int userId) {
+        userSlots.computeIfPresent(userId, (id, held) -> held > 1 ? held - 1 : null);
+    }
+
+    private ServiceUnavailableException reject(String message) {
+        rejected.increment();
+        return new ServiceUnavailableException(message, retryAfterSeconds);
+    }
+}
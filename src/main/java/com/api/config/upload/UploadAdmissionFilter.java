@@ -0,0 +1,108 @@
+package com.api.config.upload;
+
+import com.api.config.security.JwtAuthorizationFilter;
+import com.api.controllers.exceptions.ServiceUnavailableException;
+import com.api.models.ExceptionResponseModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.boot.web.servlet.filter.OrderedHiddenHttpMethodFilter;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static com.api.config.security.SecurityConstants.HEADER_STRING;
+
+/**
+ * Puts uploads to upload-admission.paths through {@link UploadAdmission},
+ * using the Content-Length of the request, before anything reads the
+ * body. Requests without a Content-Length are charged
+ * spring.servlet.multipart.max-request-size. Runs after the
+ * Idempotency-Key filter, so replayed responses are not limited.
+ *
+ * Since this runs ahead of authentication, a request is only admitted
+ * with a bearer token whose signature checks out, and is counted
+ * against the user the token was issued to.
+ */
+@Component
+@Order(OrderedHiddenHttpMethodFilter.DEFAULT_ORDER - 1)
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Autowired
+    private UploadAdmission uploadAdmission;
+
+    @Value("${upload-admission.paths:/submissions/create,/submissions/update/*,/submissions/uploads/*/chunks/*}")
+    private String[] paths;
+
+    @Autowired
+    private MultipartProperties multipartProperties;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.POST.matches(request.getMethod()) && !HttpMethod.PUT.matches(request.getMethod())) {
+            return true;
+        }
+        String path = urlPathHelper.getPathWithinApplication(request);
+        for (String pattern : paths) {
+            if (pathMatcher.match(pattern.trim(), path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        Integer userId = JwtAuthorizationFilter.verifiedUserId(request.getHeader(HEADER_STRING));
+        if (userId == null) {
+            reject(response, HttpStatus.UNAUTHORIZED, "Missing or invalid token", null);
+            return;
+        }
+        long bytes = request.getContentLengthLong();
+        if (bytes < 0) {
+            bytes = Math.max(multipartProperties.createMultipartConfig().getMaxRequestSize(), 0);
+        }
+        if (bytes > uploadAdmission.getMaxBytes()) {
+            reject(response, HttpStatus.PAYLOAD_TOO_LARGE, "Upload exceeds the upload capacity of " + uploadAdmission.getMaxBytes() + " bytes", null);
+            return;
+        }
+        try {
+            uploadAdmission.admit(userId, bytes);
+        } catch (ServiceUnavailableException e) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e.getRetryAfterSeconds());
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            uploadAdmission.release(userId, bytes);
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message, Long retryAfterSeconds) throws IOException {
+        response.setStatus(status.value());
+        if (retryAfterSeconds != null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        // The body is left unread, so the connection cannot be reused for another request
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        new ObjectMapper().writeValue(response.getOutputStream(), new ExceptionResponseModel(message, status.value()));
+    }
+}
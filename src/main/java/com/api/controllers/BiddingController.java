@@ -1,13 +1,20 @@
 package com.api.controllers;
 
+import com.api.config.security.AllowedRoles;
 import com.api.services.BiddingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import static com.api.models.enums.Role.ROLE_ADMIN;
+import static com.api.models.enums.Role.ROLE_COORDINATOR;
+import static com.api.models.enums.Role.ROLE_OPPONENT;
+import static com.api.models.enums.Role.ROLE_READER;
+import static com.api.models.enums.Role.ROLE_STUDENT;
+import static com.api.models.enums.Role.ROLE_SUPERVISOR;
+
 @Controller
 @RequestMapping(path = "/bidding")
 public class BiddingController {
@@ -23,7 +30,7 @@ public class BiddingController {
      * @param submissionId the submission
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PostMapping(path = "/request/reader/{id}")
     public @ResponseBody ResponseEntity requestToReadSubmission(Authentication authentication,@PathVariable(value = "id") int submissionId) {
         return biddingService.requestToReadSubmission(authentication, submissionId);
@@ -37,7 +44,7 @@ public class BiddingController {
      * @param submissionId the submission id
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PostMapping(path = "/confirm/reader/{studentId}/{submissionId}")
     public @ResponseBody ResponseEntity confirmToReadSubmission(@PathVariable(value = "studentId") int studentId, @PathVariable(value = "submissionId") int submissionId) {
         return biddingService.confirmToReadSubmission(studentId, submissionId);
@@ -51,7 +58,7 @@ public class BiddingController {
      * @param submissionId the submission id
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PostMapping(path = "/set/opponent/{studentId}/{submissionId}")
     public @ResponseBody ResponseEntity setOpponentOnSubmission(@PathVariable(value = "studentId") int studentId, @PathVariable(value = "submissionId") int submissionId) {
         return biddingService.setOpponentOnSubmission(studentId, submissionId);
@@ -64,7 +71,7 @@ public class BiddingController {
      * @param submissionId the submission id
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @DeleteMapping(path = "/remove/opponent/{studentId}/{submissionId}")
     public @ResponseBody ResponseEntity removeOpponentFromSubmission(@PathVariable(value = "studentId") int studentId, @PathVariable(value = "submissionId") int submissionId) {
         return biddingService.removeOpponentFromSubmission(studentId, submissionId);
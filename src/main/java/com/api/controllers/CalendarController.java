@@ -1,16 +1,26 @@
 package com.api.controllers;
 
+import com.api.config.security.AllowedRoles;
 import com.api.controllers.exceptions.BadRequestException;
 import com.api.controllers.exceptions.NotFoundException;
 import com.api.models.CalendarModel;
 import com.api.services.CalendarService;
+import com.api.services.PaginationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
+import static com.api.models.enums.Role.ROLE_ADMIN;
+import static com.api.models.enums.Role.ROLE_COORDINATOR;
+import static com.api.models.enums.Role.ROLE_OPPONENT;
+import static com.api.models.enums.Role.ROLE_READER;
+import static com.api.models.enums.Role.ROLE_STUDENT;
+import static com.api.models.enums.Role.ROLE_SUPERVISOR;
+
 @Controller
 @RequestMapping(path = "/calendar")
 public class CalendarController {
@@ -18,16 +28,21 @@ public class CalendarController {
     @Autowired
     private CalendarService calendarService;
 
+    @Autowired
+    private PaginationService paginationService;
+
     /**
      * GET /calendar
-     * Method which returns all registered calendar events
+     * Method which returns a page of registered calendar events, ordered by id
      *
-     * @return Iterable<CalendarModel> collection of all calendar events
+     * @param cursor the cursor of the page, from the X-Next-Cursor header of the previous page
+     * @param size the page size, defaults to pagination.default-page-size
+     * @return ResponseEntity<List<CalendarModel>> page of calendar events
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping
-    public @ResponseBody Iterable<CalendarModel> getAllEvents() {
-        return calendarService.getAllEvents();
+    public ResponseEntity<List<CalendarModel>> getAllEvents(@RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "size", required = false) Integer size) {
+        return paginationService.respond(calendarService.getAllEvents(cursor, size));
     }
 
     /**
@@ -37,7 +52,7 @@ public class CalendarController {
      * @return CalendarModel specific calendar event
      * @throws NotFoundException
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping(path = "/{id}")
     public @ResponseBody CalendarModel getSpecificEvent(@PathVariable(value = "id") int id) throws NotFoundException {
         return calendarService.getSpecificEvent(id);
@@ -51,7 +66,7 @@ public class CalendarController {
      * @return ResponseEntity the response
      * @throws NotFoundException
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @DeleteMapping(path = "/remove/{id}")
     public @ResponseBody ResponseEntity removeEvent(@PathVariable(value = "id") int id) throws NotFoundException {
         return calendarService.removeEvent(id);
@@ -65,7 +80,7 @@ public class CalendarController {
      * @return ResponseEntity the response
      * @throws BadRequestException
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PostMapping(path = "/add", consumes = MediaType.APPLICATION_JSON_VALUE)
     public @ResponseBody ResponseEntity setEvent(@RequestBody CalendarModel event) throws BadRequestException {
         return calendarService.setEvent(event);
@@ -80,7 +95,7 @@ public class CalendarController {
      * @return ResponseEntity the response
      * @throws NotFoundException
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PutMapping(path = "/update/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
     public @ResponseBody ResponseEntity updateEvent(@PathVariable(value = "id") int eventId, @RequestBody CalendarModel event) throws NotFoundException {
         return calendarService.updateEvent(eventId, event);
@@ -1,14 +1,21 @@
 package com.api.controllers;
 
+import com.api.config.security.AllowedRoles;
 import com.api.models.CommentModel;
 import com.api.services.CommentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import static com.api.models.enums.Role.ROLE_ADMIN;
+import static com.api.models.enums.Role.ROLE_COORDINATOR;
+import static com.api.models.enums.Role.ROLE_OPPONENT;
+import static com.api.models.enums.Role.ROLE_READER;
+import static com.api.models.enums.Role.ROLE_STUDENT;
+import static com.api.models.enums.Role.ROLE_SUPERVISOR;
+
 @Controller
 @RequestMapping(path = "/comment")
 public class CommentController {
@@ -25,7 +32,7 @@ public class CommentController {
      * @param comment the comment model
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PostMapping(path = "/add/{id}")
     public ResponseEntity postCommentOnSubmission(Authentication authentication, @PathVariable(value = "id") int id, @RequestBody CommentModel comment) {
         return commentService.postCommentOnSubmission(authentication,id, comment);
@@ -38,7 +45,7 @@ public class CommentController {
      * @param id the comment id
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping(path = "/{id}")
     public  @ResponseBody CommentModel getComment(@PathVariable(value = "id") int id) {
         return commentService.getComment(id);
@@ -51,7 +58,7 @@ public class CommentController {
      * @param id the comment id
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @DeleteMapping(path = "/delete/{id}")
     public ResponseEntity deleteComment(@PathVariable(value = "id") int id) {
         return commentService.deleteComment(id);
@@ -66,7 +73,7 @@ public class CommentController {
      * @param comment the comment model
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PutMapping(path = "/update/{id}")
     public ResponseEntity updateComment(Authentication authentication, @PathVariable(value = "id") int id, @RequestBody CommentModel comment) {
         return commentService.updateComment(authentication,id, comment);
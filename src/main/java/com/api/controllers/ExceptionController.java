@@ -2,6 +2,7 @@ package com.api.controllers;
 
 import com.api.controllers.exceptions.*;
 import com.api.models.ExceptionResponseModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -45,14 +46,43 @@ public class ExceptionController {
         ExceptionResponseModel response = new ExceptionResponseModel(exception.getMessage(),400);
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
+    /**
+     * 406 Not Acceptable
+     */
+    @ExceptionHandler(value = NotAcceptableException.class)
+    public ResponseEntity<Object> notAcceptableException(NotAcceptableException exception) {
+        ExceptionResponseModel response = new ExceptionResponseModel(exception.getMessage(),406);
+        return new ResponseEntity<>(response, HttpStatus.NOT_ACCEPTABLE);
+    }
+
+    /**
+     * 409 Conflict
+     */
+    @ExceptionHandler(value = ConflictException.class)
+    public ResponseEntity<Object> conflictException(ConflictException exception) {
+        ExceptionResponseModel response = new ExceptionResponseModel(exception.getMessage(),409);
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
     /**
      * 500 Internal Error
      */
     @ExceptionHandler(value = InternalErrorException.class)
-    public ResponseEntity<Object> internalErrorException(FileStorageException exception) {
+    public ResponseEntity<Object> internalErrorException(InternalErrorException exception) {
         ExceptionResponseModel response = new ExceptionResponseModel(exception.getMessage(),500);
         return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    /**
+     * 503 Service Unavailable
+     */
+    @ExceptionHandler(value = ServiceUnavailableException.class)
+    public ResponseEntity<Object> serviceUnavailableException(ServiceUnavailableException exception) {
+        ExceptionResponseModel response = new ExceptionResponseModel(exception.getMessage(),503);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(response);
+    }
+
 
 }
@@ -0,0 +1,64 @@
+package com.api.controllers;
+
+import com.api.config.security.AllowedRoles;
+import com.api.services.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static com.api.models.enums.Role.ROLE_ADMIN;
+import static com.api.models.enums.Role.ROLE_COORDINATOR;
+
+@Controller
+@RequestMapping("/export")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    /**
+     * GET /export/students
+     * Method which streams all students as newline-delimited JSON
+     *
+     * @param response the servlet response
+     * @throws IOException if writing the response fails
+     */
+    @AllowedRoles({ROLE_COORDINATOR, ROLE_ADMIN})
+    @GetMapping(path = "/students")
+    public void exportStudents(HttpServletResponse response) throws IOException {
+        response.setContentType(ExportService.NDJSON);
+        exportService.exportStudents(response.getOutputStream());
+    }
+
+    /**
+     * GET /export/supervisors
+     * Method which streams all supervisors as newline-delimited JSON
+     *
+     * @param response the servlet response
+     * @throws IOException if writing the response fails
+     */
+    @AllowedRoles({ROLE_COORDINATOR, ROLE_ADMIN})
+    @GetMapping(path = "/supervisors")
+    public void exportSupervisors(HttpServletResponse response) throws IOException {
+        response.setContentType(ExportService.NDJSON);
+        exportService.exportSupervisors(response.getOutputStream());
+    }
+
+    /**
+     * GET /export/submissions
+     * Method which streams the metadata of all submissions as newline-delimited JSON
+     *
+     * @param response the servlet response
+     * @throws IOException if writing the response fails
+     */
+    @AllowedRoles({ROLE_COORDINATOR, ROLE_ADMIN})
+    @GetMapping(path = "/submissions")
+    public void exportSubmissions(HttpServletResponse response) throws IOException {
+        response.setContentType(ExportService.NDJSON);
+        exportService.exportSubmissions(response.getOutputStream());
+    }
+}
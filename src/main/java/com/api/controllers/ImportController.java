@@ -0,0 +1,57 @@
+package com.api.controllers;
+
+import com.api.config.security.AllowedRoles;
+import com.api.models.UserImportResultModel;
+import com.api.services.ExportService;
+import com.api.services.UserImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+
+import static com.api.models.enums.Role.ROLE_ADMIN;
+
+@Controller
+@RequestMapping("/import")
+public class ImportController {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    /**
+     * POST /import/users
+     * Method which creates user accounts from a CSV upload with a header
+     * line naming the columns name, surname, email, password and
+     * optionally type and roles
+     *
+     * @param request the servlet request carrying the CSV body
+     * @return ResponseEntity<List<UserImportResultModel>> the result of each row
+     * @throws IOException if the body cannot be read
+     */
+    @AllowedRoles(ROLE_ADMIN)
+    @PostMapping(path = "/users", consumes = UserImportService.CSV)
+    public ResponseEntity<List<UserImportResultModel>> importUsersFromCsv(HttpServletRequest request) throws IOException {
+        return new ResponseEntity<>(userImportService.importCsv(request.getInputStream()), HttpStatus.OK);
+    }
+
+    /**
+     * POST /import/users
+     * Method which creates user accounts from newline-delimited JSON,
+     * one object per line with the same fields as the CSV columns
+     *
+     * @param request the servlet request carrying the NDJSON body
+     * @return ResponseEntity<List<UserImportResultModel>> the result of each row
+     * @throws IOException if the body cannot be read
+     */
+    @AllowedRoles(ROLE_ADMIN)
+    @PostMapping(path = "/users", consumes = ExportService.NDJSON)
+    public ResponseEntity<List<UserImportResultModel>> importUsersFromNdjson(HttpServletRequest request) throws IOException {
+        return new ResponseEntity<>(userImportService.importNdjson(request.getInputStream()), HttpStatus.OK);
+    }
+}
@@ -1,18 +1,38 @@
 package com.api.controllers;
 
+import com.api.config.security.AllowedRoles;
 import com.api.controllers.exceptions.NotFoundException;
 import com.api.models.SubmissionModel;
+import com.api.models.SubmissionVersionModel;
+import com.api.models.enums.Grade;
+import com.api.models.enums.SubmissionType;
+import com.api.services.PaginationService;
+import com.api.services.SubmissionBundleService;
 import com.api.services.SubmissionService;
+import com.api.services.SubmissionStatusService;
+import com.api.services.SubmissionVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import springfox.documentation.annotations.ApiIgnore;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+
+import static com.api.models.enums.Role.ROLE_ADMIN;
+import static com.api.models.enums.Role.ROLE_COORDINATOR;
+import static com.api.models.enums.Role.ROLE_OPPONENT;
+import static com.api.models.enums.Role.ROLE_READER;
+import static com.api.models.enums.Role.ROLE_STUDENT;
+import static com.api.models.enums.Role.ROLE_SUPERVISOR;
 
 @Controller
 @RequestMapping("/submissions")
@@ -21,16 +41,30 @@ public class SubmissionController {
     @Autowired
     private SubmissionService submissionService;
 
+    @Autowired
+    private SubmissionStatusService submissionStatusService;
+
+    @Autowired
+    private SubmissionVersionService submissionVersionService;
+
+    @Autowired
+    private SubmissionBundleService submissionBundleService;
+
+    @Autowired
+    private PaginationService paginationService;
+
     /**
      * GET /submissions
-     * Method which returns all submissions
+     * Method which returns a page of submissions, ordered by id
      *
-     * @return Iterable<SubmissionModel> collection of all submissions
+     * @param cursor the cursor of the page, from the X-Next-Cursor header of the previous page
+     * @param size the page size, defaults to pagination.default-page-size
+     * @return ResponseEntity<List<SubmissionModel>> page of submissions
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping
-    public @ResponseBody Iterable<SubmissionModel> getAllSubmissions() {
-        return submissionService.findAll();
+    public ResponseEntity<List<SubmissionModel>> getAllSubmissions(@RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "size", required = false) Integer size) {
+        return paginationService.respond(submissionService.findAll(cursor, size));
     }
 
     /**
@@ -39,7 +73,7 @@ public class SubmissionController {
      *
      * @return a specific submission
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping("/{id}")
     public @ResponseBody SubmissionModel getSpecificSubmission(@PathVariable(value = "id") int id) {
         return submissionService.findById(id);
@@ -47,15 +81,75 @@ public class SubmissionController {
 
     /**
      * GET /submissions/file/{id}
-     * Method which finds a specific submission file
+     * Method which streams a specific submission file,
+     * supporting Range, If-Range and If-None-Match requests
      *
      * @param id the submission id of the file
-     * @return ResponseEntity the response
+     * @param request the servlet request
+     * @param response the servlet response
+     * @throws IOException if writing the response fails
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping("/file/{id}")
-    public @ResponseBody ResponseEntity getFile(@PathVariable(value = "id") int id) {
-        return submissionService.getFile(id);
+    public void getFile(@PathVariable(value = "id") int id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        submissionService.getFile(id, request, response);
+    }
+
+    /**
+     * GET /submissions/bundle
+     * Method which streams the files of the submissions matching a filter
+     * as a ZIP, starting with a manifest.csv describing each submission.
+     * Supervisors only get the files of their own students
+     *
+     * @param authentication user authentication
+     * @param supervisor optional supervisor id to filter students by
+     * @param type optional submission type
+     * @param grade optional grade
+     * @param response the servlet response
+     * @throws IOException if writing the response fails
+     */
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
+    @GetMapping("/bundle")
+    public void getBundle(Authentication authentication,
+                          @RequestParam(value = "supervisor", required = false) Integer supervisor,
+                          @RequestParam(value = "type", required = false) SubmissionType type,
+                          @RequestParam(value = "grade", required = false) Grade grade,
+                          HttpServletResponse response) throws IOException {
+        response.setContentType(SubmissionBundleService.ZIP);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"submissions.zip\"");
+        submissionBundleService.writeBundle(authentication, supervisor, type, grade, response.getOutputStream());
+    }
+
+    /**
+     * GET /submissions/{id}/versions
+     * Method which returns the versions of a submission, oldest first,
+     * ending with the current version
+     *
+     * @param id the submission id
+     * @return List<SubmissionVersionModel> the versions
+     */
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
+    @GetMapping("/{id}/versions")
+    public @ResponseBody List<SubmissionVersionModel> getVersions(@PathVariable(value = "id") int id) {
+        return submissionVersionService.getVersions(id);
+    }
+
+    /**
+     * GET /submissions/{id}/versions/{version}/file
+     * Method which streams the file of a version of a submission,
+     * supporting Range, If-Range and If-None-Match requests
+     *
+     * @param id the submission id
+     * @param version the version number
+     * @param request the servlet request
+     * @param response the servlet response
+     * @throws IOException if writing the response fails
+     */
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
+    @GetMapping("/{id}/versions/{version}/file")
+    public void getVersionFile(@PathVariable(value = "id") int id, @PathVariable(value = "version") int version,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        submissionVersionService.getFile(id, version, request, response);
     }
 
     /**
@@ -66,7 +160,7 @@ public class SubmissionController {
      * @param submission JSON body of submission
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT')")
+    @AllowedRoles(ROLE_STUDENT)
     @ApiIgnore
     @PostMapping(path = "/create")
     public ResponseEntity createSubmission(Authentication authentication, @ModelAttribute SubmissionModel submission, @RequestParam("file") MultipartFile file) {
@@ -82,7 +176,7 @@ public class SubmissionController {
      * @return ResponseEntity
      * @throws NotFoundException
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT')")
+    @AllowedRoles(ROLE_STUDENT)
     @DeleteMapping(path = "/remove/{id}")
     public ResponseEntity removeSubmission(Authentication authentication, @PathVariable(value = "id") int id) throws NotFoundException {
         return submissionService.removeSubmission(authentication, id);
@@ -96,7 +190,7 @@ public class SubmissionController {
      * @param submission JSON body of submission
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT')")
+    @AllowedRoles(ROLE_STUDENT)
     @ApiIgnore
     @PutMapping(path = "/update/{id}")
     public ResponseEntity updateSubmission(Authentication authentication, @PathVariable(value = "id") int id, @ModelAttribute SubmissionModel submission, @RequestParam("file") MultipartFile file) {
@@ -111,7 +205,7 @@ public class SubmissionController {
      * @param submission the submission data containing new grade
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @ApiIgnore
     @PutMapping(path = "/grade/{id}")
     public ResponseEntity setGradeOnSubmission(@PathVariable(value = "id") int id, @ModelAttribute SubmissionModel submission) {
@@ -120,14 +214,45 @@ public class SubmissionController {
 
     /**
      * GET /submissions/view
-     * Method which fetches all student submission,
-     * or shows them as null if non-existent
+     * Method which fetches a page of student submission status, ordered
+     * by student id and showing each type of submission as null if non-existent
      *
-     * @return List<Object> list of students and each type of submission
+     * @param supervisor optional supervisor id to filter students by
+     * @param grade optional grade to filter students by
+     * @param cursor the cursor of the page, from the X-Next-Cursor header of the previous page
+     * @param size the page size, defaults to pagination.default-page-size
+     * @return ResponseEntity<List<Map<String, Object>>> page of students and each type of submission
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping(path = "/view")
-    public @ResponseBody List<Object> fetchStatusOnStudentSubmissions() {
-        return submissionService.fetchStatusOnStudentSubmissions();
+    public ResponseEntity<List<Map<String, Object>>> fetchStatusOnStudentSubmissions(@RequestParam(value = "supervisor", required = false) Integer supervisor,
+                                                                                     @RequestParam(value = "grade", required = false) Grade grade,
+                                                                                     @RequestParam(value = "cursor", required = false) String cursor,
+                                                                                     @RequestParam(value = "size", required = false) Integer size) {
+        return paginationService.respond(submissionService.fetchStatusOnStudentSubmissions(supervisor, grade, cursor, size));
+    }
+
+    /**
+     * POST /submissions/view/rebuild
+     * Method which rebuilds the submission status view from the submissions
+     *
+     * @return ResponseEntity the response
+     */
+    @AllowedRoles({ROLE_COORDINATOR, ROLE_ADMIN})
+    @PostMapping(path = "/view/rebuild")
+    public ResponseEntity rebuildStatusOnStudentSubmissions() {
+        return new ResponseEntity<>("Submission status rebuilt for " + submissionStatusService.rebuild() + " students", HttpStatus.OK);
+    }
+
+    /**
+     * GET /submissions/view/check
+     * Method which compares the submission status view with the submissions
+     *
+     * @return Map<String, Object> the number of rows checked and the students whose row differs
+     */
+    @AllowedRoles({ROLE_COORDINATOR, ROLE_ADMIN})
+    @GetMapping(path = "/view/check")
+    public @ResponseBody Map<String, Object> checkStatusOnStudentSubmissions() {
+        return submissionStatusService.check();
     }
 }
@@ -0,0 +1,105 @@
+package com.api.controllers;
+
+import com.api.config.security.AllowedRoles;
+import com.api.models.UploadSessionModel;
+import com.api.services.UploadSessionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import springfox.documentation.annotations.ApiIgnore;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+import static com.api.services.UploadSessionService.CHUNK_CHECKSUM_HEADER;
+import static com.api.services.UploadSessionService.FILE_CHECKSUM_HEADER;
+import static com.api.models.enums.Role.ROLE_STUDENT;
+
+@Controller
+@RequestMapping("/submissions/uploads")
+public class UploadSessionController {
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    /**
+     * POST /submissions/uploads
+     * Method which opens a resumable upload session for a new submission
+     *
+     * @param authentication user authentication
+     * @param session the submission fields, file name, file type and optional total size
+     * @return UploadSessionModel the new session
+     */
+    @AllowedRoles(ROLE_STUDENT)
+    @ApiIgnore
+    @PostMapping
+    public @ResponseBody UploadSessionModel createSession(Authentication authentication, @ModelAttribute UploadSessionModel session) {
+        return uploadSessionService.createSession(authentication, session);
+    }
+
+    /**
+     * GET /submissions/uploads/{id}
+     * Method which returns the received offset and next expected chunk of a session
+     *
+     * @param authentication user authentication
+     * @param id the session id
+     * @return UploadSessionModel the session
+     */
+    @AllowedRoles(ROLE_STUDENT)
+    @GetMapping("/{id}")
+    public @ResponseBody UploadSessionModel getSession(Authentication authentication, @PathVariable(value = "id") String id) {
+        return uploadSessionService.getSession(authentication, id);
+    }
+
+    /**
+     * PUT /submissions/uploads/{id}/chunks/{index}
+     * Method which uploads a numbered chunk, verified against its SHA-256
+     *
+     * @param authentication user authentication
+     * @param id the session id
+     * @param index the zero based chunk number
+     * @param checksum the hex encoded SHA-256 of the chunk
+     * @param request the request carrying the chunk as its body
+     * @return UploadSessionModel the updated session
+     * @throws IOException if the chunk cannot be read or spooled
+     */
+    @AllowedRoles(ROLE_STUDENT)
+    @PutMapping("/{id}/chunks/{index}")
+    public @ResponseBody UploadSessionModel putChunk(Authentication authentication, @PathVariable(value = "id") String id, @PathVariable(value = "index") int index,
+                                                     @RequestHeader(value = CHUNK_CHECKSUM_HEADER, required = false) String checksum, HttpServletRequest request) throws IOException {
+        return uploadSessionService.putChunk(authentication, id, index, checksum, request.getInputStream());
+    }
+
+    /**
+     * POST /submissions/uploads/{id}/commit
+     * Method which turns a completed upload session into a submission
+     *
+     * @param authentication user authentication
+     * @param id the session id
+     * @param checksum optional hex encoded SHA-256 of the whole file
+     * @return ResponseEntity the response
+     * @throws IOException if the file cannot be stored
+     */
+    @AllowedRoles(ROLE_STUDENT)
+    @PostMapping("/{id}/commit")
+    public ResponseEntity commit(Authentication authentication, @PathVariable(value = "id") String id,
+                                 @RequestHeader(value = FILE_CHECKSUM_HEADER, required = false) String checksum) throws IOException {
+        return uploadSessionService.commit(authentication, id, checksum);
+    }
+
+    /**
+     * DELETE /submissions/uploads/{id}
+     * Method which abandons an upload session
+     *
+     * @param authentication user authentication
+     * @param id the session id
+     * @return ResponseEntity the response
+     */
+    @AllowedRoles(ROLE_STUDENT)
+    @DeleteMapping("/{id}")
+    public ResponseEntity abort(Authentication authentication, @PathVariable(value = "id") String id) {
+        return uploadSessionService.abort(authentication, id);
+    }
+}
@@ -1,24 +1,31 @@
 package com.api.controllers;
 
+import com.api.config.security.AllowedRoles;
+import com.api.config.security.TokenPrincipal;
 import com.api.controllers.exceptions.BadRequestException;
 import com.api.controllers.exceptions.NotFoundException;
-import com.api.models.StudentModel;
-import com.api.models.SupervisorModel;
+import com.api.models.AccountUpgradeModel;
 import com.api.models.UserModel;
 import com.api.models.enums.RoleWrapper;
 import com.api.repositories.UserRepository;
+import com.api.services.PaginationService;
 import com.api.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import java.util.*;
 
 import static com.api.config.security.SecurityConstants.SECRET;
+import static com.api.models.enums.Role.ROLE_ADMIN;
+import static com.api.models.enums.Role.ROLE_COORDINATOR;
+import static com.api.models.enums.Role.ROLE_OPPONENT;
+import static com.api.models.enums.Role.ROLE_READER;
+import static com.api.models.enums.Role.ROLE_STUDENT;
+import static com.api.models.enums.Role.ROLE_SUPERVISOR;
 
 @Controller
 @RequestMapping
@@ -30,16 +37,21 @@ public class UserController {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    private PaginationService paginationService;
+
     /**
      * GET /
-     * Method which finds all users
+     * Method which finds a page of users, ordered by id
      *
-     * @return Iterable<UserModel> collection of all users
+     * @param cursor the cursor of the page, from the X-Next-Cursor header of the previous page
+     * @param size the page size, defaults to pagination.default-page-size
+     * @return ResponseEntity<List<Map<String, Object>>> page of users
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping
-    public @ResponseBody List<UserModel> getAllUsers() {
-        return userService.findAll();
+    public ResponseEntity<List<Map<String, Object>>> getAllUsers(@RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "size", required = false) Integer size) {
+        return paginationService.respond(userService.findAll(cursor, size));
     }
 
     /**
@@ -49,7 +61,7 @@ public class UserController {
      * @param id the id of the user
      * @return Map<String, Object> map with user info
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping(path = "/user/{id}")
     public @ResponseBody Map<String, Object> getUserById(@PathVariable(value  = "id") int id) {
         return userService.getUserById(id);
@@ -76,7 +88,7 @@ public class UserController {
      * @return ResponseEntity the response
      * @throws NotFoundException
      */
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @AllowedRoles(ROLE_ADMIN)
     @DeleteMapping(path = "/delete/{id}")
     public @ResponseBody ResponseEntity deleteUser(@PathVariable(value = "id") int id) throws NotFoundException {
         return userService.deleteUser(id);
@@ -84,26 +96,30 @@ public class UserController {
 
     /**
      * GET /supervisors
-     * Method which return all registered supervisors
+     * Method which return a page of registered supervisors, ordered by id
      *
-     * @return Iterable<UserModel> collection of all supervisors
+     * @param cursor the cursor of the page, from the X-Next-Cursor header of the previous page
+     * @param size the page size, defaults to pagination.default-page-size
+     * @return ResponseEntity<List<Map<String, Object>>> page of supervisors
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping(path = "/supervisors")
-    public @ResponseBody Iterable<SupervisorModel> getAllSupervisors() {
-        return userService.getAllSupervisors();
+    public ResponseEntity<List<Map<String, Object>>> getAllSupervisors(@RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "size", required = false) Integer size) {
+        return paginationService.respond(userService.getAllSupervisors(cursor, size));
     }
 
     /**
      * GET /students
-     * Method which return all registered students
+     * Method which return a page of registered students, ordered by id
      *
-     * @return Iterable<UserModel> collection of all students
+     * @param cursor the cursor of the page, from the X-Next-Cursor header of the previous page
+     * @param size the page size, defaults to pagination.default-page-size
+     * @return ResponseEntity<List<Map<String, Object>>> page of students
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping(path = "/students")
-    public @ResponseBody Iterable<StudentModel> getAllStudents() {
-        return userService.getAllStudents();
+    public ResponseEntity<List<Map<String, Object>>> getAllStudents(@RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "size", required = false) Integer size) {
+        return paginationService.respond(userService.getAllStudents(cursor, size));
     }
 
     /**
@@ -114,7 +130,7 @@ public class UserController {
      */
     @PostMapping(path = "/user")
     public @ResponseBody Map<String, Object> whoAmI(Authentication authentication) {
-        return userService.getUserById(userService.getUserByEmail(authentication.getName()).getId());
+        return userService.getUserById(TokenPrincipal.idOf(authentication));
     }
 
     /**
@@ -127,7 +143,7 @@ public class UserController {
      * @param header header deciding that accounts will only update roles
      * @return ResponseEntity the response
      */
-    //@PreAuthorize("hasRole('ROLE_ADMIN')")
+    //@AllowedRoles(ROLE_ADMIN)
     @PostMapping(path = "/roles/{id}", headers = "action=none")
     public @ResponseBody ResponseEntity setUserRoles(@PathVariable(value  = "id") int id, @RequestBody RoleWrapper roles, @RequestHeader(value = "action") String header) throws NotFoundException {
         return userService.setUserRoles(id, roles.getRoles(), header);
@@ -143,7 +159,7 @@ public class UserController {
      * @param header accounts will upgrade to student and update roles
      * @return ResponseEntity the response
      */
-    //@PreAuthorize("hasRole('ROLE_ADMIN')")
+    //@AllowedRoles(ROLE_ADMIN)
     @PostMapping(path = "/roles/{id}", headers = "action=student")
     public @ResponseBody ResponseEntity upgradeToStudent(@PathVariable(value  = "id") int id, @RequestBody RoleWrapper roles, @RequestHeader(value = "action") String header) throws NotFoundException {
         return userService.setUserRoles(id, roles.getRoles(), header);
@@ -159,7 +175,7 @@ public class UserController {
      * @param header accounts will upgrade to supervisor and update roles
      * @return ResponseEntity the response
      */
-    //@PreAuthorize("hasRole('ROLE_ADMIN')")
+    //@AllowedRoles(ROLE_ADMIN)
     @PostMapping(path = "/roles/{id}", headers = "action=supervisor")
     public @ResponseBody ResponseEntity upgradeToSupervisor(@PathVariable(value  = "id") int id, @RequestBody RoleWrapper roles, @RequestHeader(value = "action") String header) throws NotFoundException {
         return userService.setUserRoles(id, roles.getRoles(), header);
@@ -175,12 +191,29 @@ public class UserController {
      * @param header accounts will upgrade to coordinator and update roles
      * @return ResponseEntity the response
      */
-    //@PreAuthorize("hasRole('ROLE_ADMIN')")
+    //@AllowedRoles(ROLE_ADMIN)
     @PostMapping(path = "/roles/{id}", headers = "action=coordinator")
     public @ResponseBody ResponseEntity upgradeToCoordinator(@PathVariable(value  = "id") int id, @RequestBody RoleWrapper roles, @RequestHeader(value = "action") String header) throws NotFoundException {
         return userService.setUserRoles(id, roles.getRoles(), header);
     }
 
+    /**
+     * POST /roles
+     * Method which upgrades a batch of user accounts, such as a whole
+     * intake, to the account type given by the action header and sets
+     * their roles. Accounts keep their ids; ids which do not belong to
+     * a plain user account are skipped
+     *
+     * @param request the user ids and the selected roles
+     * @param header student, supervisor or coordinator
+     * @return ResponseEntity<List<Integer>> the ids of the upgraded accounts
+     */
+    @AllowedRoles({ROLE_COORDINATOR, ROLE_ADMIN})
+    @PostMapping(path = "/roles")
+    public ResponseEntity<List<Integer>> upgradeAccounts(@RequestBody AccountUpgradeModel request, @RequestHeader(value = "action") String header) {
+        return userService.upgradeAccounts(request, header);
+    }
+
     /**
      * POST /supervise/{student}/{supervisor}
      * Method which confirms supervision requested by a student
@@ -189,7 +222,7 @@ public class UserController {
      * @param supervisorId the id of the supervisor
      * @return ResponseEntity the response
      */
-    @PreAuthorize("hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PostMapping(path = "/supervise/confirm/{student}/{supervisor}")
     public @ResponseBody ResponseEntity setSupervisorOnStudent(@PathVariable(value = "student") int studentId, @PathVariable(value = "supervisor") int supervisorId) throws NotFoundException {
         return userService.setSupervisorOnStudent(studentId, supervisorId);
@@ -204,7 +237,7 @@ public class UserController {
      * @return ResponseEntity the response
      * @throws NotFoundException
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @PostMapping(path = "/supervise/{student}/{supervisor}")
     public @ResponseBody ResponseEntity requestSupervisor(@PathVariable(value = "student") int studentId, @PathVariable(value = "supervisor") int supervisorId) throws NotFoundException {
         return userService.requestSupervision(studentId, supervisorId);
@@ -212,13 +245,15 @@ public class UserController {
 
     /**
      * GET /coordinator/supervision
-     * Method which returns all students and their respective supervisor
-     * @return Iterable<SupervisorModel> the collection of all users
+     * Method which returns a page of students and their respective supervisor
+     * @param cursor the cursor of the page, from the X-Next-Cursor header of the previous page
+     * @param size the page size, defaults to pagination.default-page-size
+     * @return ResponseEntity<List<Map<String, Object>>> page of students
      */
-    @PreAuthorize("hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')")
+    @AllowedRoles({ROLE_STUDENT, ROLE_READER, ROLE_OPPONENT, ROLE_SUPERVISOR, ROLE_COORDINATOR, ROLE_ADMIN})
     @GetMapping(path = "/coordinator/supervision")
-    public @ResponseBody Iterable<StudentModel> getAllStudentsWithRespectiveSupervisor() {
-        return userRepository.findAllStudentsWithRespectiveSupervisor();
+    public ResponseEntity<List<Map<String, Object>>> getAllStudentsWithRespectiveSupervisor(@RequestParam(value = "cursor", required = false) String cursor, @RequestParam(value = "size", required = false) Integer size) {
+        return paginationService.respond(userService.getAllStudentsWithRespectiveSupervisor(cursor, size));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.api.controllers.exceptions;
+
+public class ConflictException extends RuntimeException{
+    private static final long serialVersionUID = 1L;
+
+    public ConflictException() {}
+
+    public ConflictException(String message) {
+        super(message);
+    }
+
+    public ConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.api.controllers.exceptions;
+
+public class NotAcceptableException extends RuntimeException{
+    private static final long serialVersionUID = 1L;
+
+    public NotAcceptableException() {}
+
+    public NotAcceptableException(String message) {
+        super(message);
+    }
+
+    public NotAcceptableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
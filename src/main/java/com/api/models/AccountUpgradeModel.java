@@ -0,0 +1,33 @@
+package com.api.models;
+
+import com.api.models.enums.Role;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AccountUpgradeModel {
+
+    private List<Integer> ids;
+
+    private ArrayList<Role> roles;
+
+    public AccountUpgradeModel() {
+
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Integer> ids) {
+        this.ids = ids;
+    }
+
+    public ArrayList<Role> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(ArrayList<Role> roles) {
+        this.roles = roles;
+    }
+}
@@ -1,5 +1,6 @@
 package com.api.models;
 
+import org.hibernate.annotations.GenericGenerator;
 import javax.persistence.*;
 import java.time.LocalDateTime;
 
@@ -8,7 +9,8 @@ import java.time.LocalDateTime;
 public class CalendarModel {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "calendar_id")
+    @GenericGenerator(name = "calendar_id", strategy = PooledIdGenerator.STRATEGY)
     @Column(name ="event_id")
     private Integer id;
 
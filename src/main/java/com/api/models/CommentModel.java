@@ -2,6 +2,7 @@ package com.api.models;
 
 import com.api.models.enums.CommentType;
 import com.fasterxml.jackson.annotation.*;
+import org.hibernate.annotations.GenericGenerator;
 import javax.persistence.*;
 import javax.persistence.Entity;
 import javax.persistence.Table;
@@ -11,7 +12,8 @@ import javax.persistence.Table;
 public class CommentModel {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "comment_id")
+    @GenericGenerator(name = "comment_id", strategy = PooledIdGenerator.STRATEGY)
     private int id;
 
     @Column(name = "text")
@@ -3,6 +3,7 @@ package com.api.models;
 import javax.persistence.*;
 
 @Entity
+@DiscriminatorValue("CoordinatorModel")
 public class CoordinatorModel extends UserModel {
     
     public CoordinatorModel() {
@@ -0,0 +1,38 @@
+package com.api.models;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated listing, ordered by id,
+ * with the opaque cursor of the following page if there is one.
+ */
+public class CursorPageModel<T> {
+
+    private List<T> items;
+    private String next;
+
+    public CursorPageModel() {
+
+    }
+
+    public CursorPageModel(List<T> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,42 @@
+package com.api.models;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Identifier generator handing out ids from blocks reserved in a
+ * <table>_seq table (MySQL has no sequences), one row per entity
+ * table. Unlike IDENTITY, ids are known before the insert, so Hibernate
+ * can batch inserts. The block size is the api.id.allocation_size
+ * Hibernate setting, and the pooled-lo optimizer keeps ids dense
+ * within a block.
+ */
+public class PooledIdGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "com.api.models.PooledIdGenerator";
+
+    public static final String ALLOCATION_SIZE = "api.id.allocation_size";
+
+    private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Properties pooled = new Properties();
+        pooled.putAll(params);
+        if (!pooled.containsKey(SEQUENCE_PARAM)) {
+            pooled.setProperty(SEQUENCE_PARAM, params.getProperty(PersistentIdentifierGenerator.TABLE) + "_seq");
+        }
+        int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_ALLOCATION_SIZE);
+        pooled.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        pooled.setProperty(OPT_PARAM, "pooled-lo");
+        super.configure(type, pooled, serviceRegistry);
+    }
+}
@@ -2,6 +2,7 @@ package com.api.models;
 
 import com.api.models.enums.Role;
 import java.util.List;
+import org.hibernate.annotations.GenericGenerator;
 import javax.persistence.*;
 
 @Entity
@@ -9,7 +10,8 @@ import javax.persistence.*;
 public class RoleModel {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "role_id")
+    @GenericGenerator(name = "role_id", strategy = PooledIdGenerator.STRATEGY)
     private Integer id;
 
     @Enumerated(EnumType.STRING)
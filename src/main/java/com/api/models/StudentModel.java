@@ -6,6 +6,7 @@ import javax.persistence.*;
 import java.util.List;
 
 @Entity
+@DiscriminatorValue("StudentModel")
 @JsonIdentityInfo(scope=StudentModel.class, generator=ObjectIdGenerators.PropertyGenerator.class, property="id")
 public class StudentModel extends UserModel {
 
@@ -1,19 +1,22 @@
 package com.api.models;
 
 import com.api.models.enums.Grade;
+import com.api.models.enums.StorageCodec;
 import com.api.models.enums.SubmissionType;
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.GenericGenerator;
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.List;
 
 @Entity
-@Table(name = "submission")
+@Table(name = "submission", indexes = @Index(name = "idx_submission_checksum", columnList = "checksum"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_submission_user_type", columnNames = {"user_id", "type"}))
 public class SubmissionModel implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "submission_id")
+    @GenericGenerator(name = "submission_id", strategy = PooledIdGenerator.STRATEGY)
     @Column(name="id")
     private Integer id;
 
@@ -29,9 +32,15 @@ public class SubmissionModel implements Serializable {
     @Column(name="fileName")
     private String fileName;
 
-    @Lob
-    @JsonIgnore
-    private byte[] data;
+    @Column(name="checksum", length = 64)
+    private String checksum;
+
+    @Column(name="fileSize")
+    private Long fileSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name="storageCodec")
+    private StorageCodec storageCodec;
 
     @Enumerated(EnumType.STRING)
     @Column(name="grade", nullable = false)
@@ -61,12 +70,13 @@ public class SubmissionModel implements Serializable {
     @OneToMany(targetEntity = StudentModel.class, mappedBy = "setOpponentSubmission", fetch = FetchType.LAZY)
     private List<StudentModel> setOpponents;
 
-    public SubmissionModel(String title, String description, String fileType, String fileName, byte[] data, Grade grade, SubmissionType type, List<CommentModel> comments, UserModel user, List<StudentModel> requestedReaders, List<StudentModel> confirmedReaders, List<StudentModel> setOpponents) {
+    public SubmissionModel(String title, String description, String fileType, String fileName, String checksum, Long fileSize, Grade grade, SubmissionType type, List<CommentModel> comments, UserModel user, List<StudentModel> requestedReaders, List<StudentModel> confirmedReaders, List<StudentModel> setOpponents) {
         this.title = title;
         this.description = description;
         this.fileType = fileType;
         this.fileName = fileName;
-        this.data = data;
+        this.checksum = checksum;
+        this.fileSize = fileSize;
         this.grade = grade;
         this.type = type;
         this.comments = comments;
@@ -141,12 +151,28 @@ public class SubmissionModel implements Serializable {
         this.fileType = fileType;
     }
 
-    public byte[] getData() {
-        return data;
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public StorageCodec getStorageCodec() {
+        return storageCodec;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public void setStorageCodec(StorageCodec storageCodec) {
+        this.storageCodec = storageCodec;
     }
 
     public Grade getGrade() {
@@ -0,0 +1,137 @@
+package com.api.models;
+
+import com.api.models.enums.Grade;
+import com.api.models.enums.SubmissionType;
+
+import javax.persistence.*;
+
+/**
+ * Materialized row of the submission status view, holding the current
+ * submission of each type for one student. Kept up to date by the
+ * submission service in the same transaction as the submission change.
+ */
+@Entity
+@Table(name = "submission_status")
+public class SubmissionStatusModel {
+
+    @Id
+    @Column(name = "student_id")
+    private Integer studentId;
+
+    @Column(name = "description_id")
+    private Integer descriptionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "description_grade")
+    private Grade descriptionGrade;
+
+    @Column(name = "description_title")
+    private String descriptionTitle;
+
+    @Column(name = "plan_id")
+    private Integer planId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "plan_grade")
+    private Grade planGrade;
+
+    @Column(name = "plan_title")
+    private String planTitle;
+
+    @Column(name = "report_id")
+    private Integer reportId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "report_grade")
+    private Grade reportGrade;
+
+    @Column(name = "report_title")
+    private String reportTitle;
+
+    @Column(name = "report_final_id")
+    private Integer reportFinalId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "report_final_grade")
+    private Grade reportFinalGrade;
+
+    @Column(name = "report_final_title")
+    private String reportFinalTitle;
+
+    public SubmissionStatusModel() {
+
+    }
+
+    public SubmissionStatusModel(Integer studentId) {
+        this.studentId = studentId;
+    }
+
+    public Integer getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Integer studentId) {
+        this.studentId = studentId;
+    }
+
+    /**
+     * Method which returns the current submission of a type
+     *
+     * @param type the submission type
+     * @return SubmissionSummaryModel the submission, or null if there is none
+     */
+    public SubmissionSummaryModel getEntry(SubmissionType type) {
+        switch (type) {
+            case DESCRIPTION:
+                return summary(type, descriptionId, descriptionGrade, descriptionTitle);
+            case PLAN:
+                return summary(type, planId, planGrade, planTitle);
+            case REPORT:
+                return summary(type, reportId, reportGrade, reportTitle);
+            case REPORT_FINAL:
+                return summary(type, reportFinalId, reportFinalGrade, reportFinalTitle);
+            default:
+                throw new IllegalArgumentException("Unknown submission type " + type);
+        }
+    }
+
+    /**
+     * Method which sets the current submission of a type
+     *
+     * @param type the submission type
+     * @param summary the submission, or null to clear it
+     */
+    public void setEntry(SubmissionType type, SubmissionSummaryModel summary) {
+        Integer id = summary != null ? summary.getId() : null;
+        Grade grade = summary != null ? summary.getGrade() : null;
+        String title = summary != null ? summary.getTitle() : null;
+        switch (type) {
+            case DESCRIPTION:
+                descriptionId = id;
+                descriptionGrade = grade;
+                descriptionTitle = title;
+                break;
+            case PLAN:
+                planId = id;
+                planGrade = grade;
+                planTitle = title;
+                break;
+            case REPORT:
+                reportId = id;
+                reportGrade = grade;
+                reportTitle = title;
+                break;
+            case REPORT_FINAL:
+                reportFinalId = id;
+                reportFinalGrade = grade;
+                reportFinalTitle = title;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown submission type " + type);
+        }
+    }
+
+    private SubmissionSummaryModel summary(SubmissionType type, Integer id, Grade grade, String title) {
+        return id == null ? null : new SubmissionSummaryModel(studentId, type, id, grade, title);
+    }
+}
@@ -0,0 +1,74 @@
+package com.api.models;
+
+import com.api.models.enums.Grade;
+import com.api.models.enums.SubmissionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Read-only projection of a submission, holding only the
+ * columns shown in the submission status view.
+ */
+public class SubmissionSummaryModel {
+
+    @JsonIgnore
+    private Integer studentId;
+
+    @JsonIgnore
+    private SubmissionType type;
+
+    private Integer id;
+    private Grade grade;
+    private String title;
+
+    public SubmissionSummaryModel() {
+
+    }
+
+    public SubmissionSummaryModel(Integer studentId, SubmissionType type, Integer id, Grade grade, String title) {
+        this.studentId = studentId;
+        this.type = type;
+        this.id = id;
+        this.grade = grade;
+        this.title = title;
+    }
+
+    public Integer getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(Integer studentId) {
+        this.studentId = studentId;
+    }
+
+    public SubmissionType getType() {
+        return type;
+    }
+
+    public void setType(SubmissionType type) {
+        this.type = type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Grade getGrade() {
+        return grade;
+    }
+
+    public void setGrade(Grade grade) {
+        this.grade = grade;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+}
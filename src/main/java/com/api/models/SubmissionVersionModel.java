@@ -0,0 +1,169 @@
+package com.api.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Earlier version of a submission, recorded whenever the submission is
+ * updated. The file of a version is kept in the blob store either as a
+ * full snapshot or as a binary delta against the version after it.
+ */
+@Entity
+@Table(name = "submission_version", indexes = @Index(name = "idx_submission_version_stored_hash", columnList = "stored_hash"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_submission_version", columnNames = {"submission_id", "version"}))
+public class SubmissionVersionModel {
+
+    @Id
+    @GeneratedValue(generator = "submission_version_id")
+    @GenericGenerator(name = "submission_version_id", strategy = PooledIdGenerator.STRATEGY)
+    @Column(name = "id")
+    private Integer id;
+
+    @Column(name = "submission_id", nullable = false)
+    private Integer submissionId;
+
+    @Column(name = "version", nullable = false)
+    private int version;
+
+    @Column(name = "title", nullable = false)
+    private String title;
+
+    @Column(name = "description", nullable = false)
+    private String description;
+
+    @Column(name = "fileName")
+    private String fileName;
+
+    @Column(name = "fileType")
+    private String fileType;
+
+    @Column(name = "fileSize")
+    private Long fileSize;
+
+    @Column(name = "checksum", length = 64)
+    private String checksum;
+
+    @JsonIgnore
+    @Column(name = "stored_hash", length = 64)
+    private String storedHash;
+
+    @JsonIgnore
+    @Column(name = "delta", nullable = false)
+    private boolean delta;
+
+    @Column(name = "replaced_at")
+    private LocalDateTime replacedAt;
+
+    public SubmissionVersionModel() {
+
+    }
+
+    public SubmissionVersionModel(SubmissionModel submission) {
+        this.submissionId = submission.getId();
+        this.title = submission.getTitle();
+        this.description = submission.getDescription();
+        this.fileName = submission.getFileName();
+        this.fileType = submission.getFileType();
+        this.fileSize = submission.getFileSize();
+        this.checksum = submission.getChecksum();
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getSubmissionId() {
+        return submissionId;
+    }
+
+    public void setSubmissionId(Integer submissionId) {
+        this.submissionId = submissionId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public String getStoredHash() {
+        return storedHash;
+    }
+
+    public void setStoredHash(String storedHash) {
+        this.storedHash = storedHash;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public void setDelta(boolean delta) {
+        this.delta = delta;
+    }
+
+    public LocalDateTime getReplacedAt() {
+        return replacedAt;
+    }
+
+    public void setReplacedAt(LocalDateTime replacedAt) {
+        this.replacedAt = replacedAt;
+    }
+}
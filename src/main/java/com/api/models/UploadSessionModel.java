@@ -0,0 +1,188 @@
+package com.api.models;
+
+import com.api.models.enums.SubmissionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_session", indexes = @Index(name = "idx_upload_session_updated_at", columnList = "updated_at"))
+public class UploadSessionModel {
+
+    private static final int CHUNK_CHECKSUM_LENGTH = 64;
+
+    @Id
+    @Column(name = "id", length = 32)
+    private String id;
+
+    @JsonIgnore
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "title", nullable = false)
+    private String title;
+
+    @Column(name = "description", nullable = false)
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private SubmissionType type;
+
+    @Column(name = "fileName", nullable = false)
+    private String fileName;
+
+    @Column(name = "fileType")
+    private String fileType;
+
+    @Column(name = "total_size")
+    private Long totalSize;
+
+    @Column(name = "received_bytes", nullable = false)
+    private long receivedBytes;
+
+    @Column(name = "next_chunk", nullable = false)
+    private int nextChunk;
+
+    @JsonIgnore
+    @Lob
+    @Column(name = "chunk_checksums")
+    private String chunkChecksums;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public UploadSessionModel() {
+
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public SubmissionType getType() {
+        return type;
+    }
+
+    public void setType(SubmissionType type) {
+        this.type = type;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public Long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(Long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public void setReceivedBytes(long receivedBytes) {
+        this.receivedBytes = receivedBytes;
+    }
+
+    public int getNextChunk() {
+        return nextChunk;
+    }
+
+    public void setNextChunk(int nextChunk) {
+        this.nextChunk = nextChunk;
+    }
+
+    public String getChunkChecksums() {
+        return chunkChecksums;
+    }
+
+    public void setChunkChecksums(String chunkChecksums) {
+        this.chunkChecksums = chunkChecksums;
+    }
+
+    /**
+     * Method which returns the checksum a received chunk was accepted with
+     *
+     * @param index the zero based chunk number
+     * @return String the hex encoded SHA-256, or null if it was not recorded
+     */
+    public String getChunkChecksum(int index) {
+        int start = index * CHUNK_CHECKSUM_LENGTH;
+        if (chunkChecksums == null || index < 0 || start + CHUNK_CHECKSUM_LENGTH > chunkChecksums.length()) {
+            return null;
+        }
+        return chunkChecksums.substring(start, start + CHUNK_CHECKSUM_LENGTH);
+    }
+
+    /**
+     * Method which records the checksum of the next chunk
+     *
+     * @param checksum the hex encoded SHA-256 of the chunk
+     */
+    public void addChunkChecksum(String checksum) {
+        chunkChecksums = (chunkChecksums != null ? chunkChecksums : "") + checksum.toLowerCase();
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
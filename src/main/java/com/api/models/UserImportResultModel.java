@@ -0,0 +1,56 @@
+package com.api.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResultModel {
+
+    private int row;
+
+    private String email;
+
+    private Integer id;
+
+    private String error;
+
+    public UserImportResultModel() {
+
+    }
+
+    public UserImportResultModel(int row, String email) {
+        this.row = row;
+        this.email = email;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
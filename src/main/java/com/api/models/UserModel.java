@@ -3,17 +3,20 @@ package com.api.models;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.GenericGenerator;
 import javax.persistence.*;
 import java.util.List;
 
 @Entity
+@DiscriminatorValue("UserModel")
 @Table(name = "user")
 @DiscriminatorColumn(name = "Account_type")
 @JsonIgnoreProperties({"comments"})
 public class UserModel {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "user_id")
+    @GenericGenerator(name = "user_id", strategy = PooledIdGenerator.STRATEGY)
     @Column(name="id")
     private Integer id;
 
@@ -30,6 +33,10 @@ public class UserModel {
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
+    @JsonIgnore
+    @Column(name="token_version", nullable = false)
+    private int tokenVersion;
+
     @JsonIgnore
     @ManyToMany
     @JoinTable(
@@ -101,6 +108,14 @@ public class UserModel {
         this.password = password;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public List<RoleModel> getRoles() {
         return roles;
     }
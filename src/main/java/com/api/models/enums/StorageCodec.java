@@ -0,0 +1,6 @@
+package com.api.models.enums;
+
+public enum StorageCodec {
+    NONE,
+    DEFLATE
+}
@@ -1,10 +1,17 @@
 package com.api.repositories;
 
 import com.api.models.CalendarModel;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CalendarRepository extends JpaRepository<CalendarModel, Integer> {
     CalendarModel findById(int id);
+    @Query("SELECT t FROM CalendarModel t WHERE t.id > :after ORDER BY t.id")
+    List<CalendarModel> findEventsAfter(@Param("after") int after, Pageable pageable);
 }
@@ -0,0 +1,32 @@
+package com.api.repositories;
+
+import com.api.models.IdempotencyRecordModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecordModel, String> {
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO idempotency_record (id, fingerprint, created_at, expires_at) VALUES (:id, :fingerprint, :now, :expires)", nativeQuery = true)
+    int claim(@Param("id") String id, @Param("fingerprint") String fingerprint, @Param("now") LocalDateTime now, @Param("expires") LocalDateTime expires);
+    @Modifying
+    @Query("UPDATE IdempotencyRecordModel t SET t.status = :status, t.contentType = :contentType, t.body = :body, t.expiresAt = :expires WHERE t.id = :id")
+    int complete(@Param("id") String id, @Param("status") int status, @Param("contentType") String contentType, @Param("body") byte[] body, @Param("expires") LocalDateTime expires);
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecordModel t WHERE t.id = :id AND t.status IS NULL")
+    int release(@Param("id") String id);
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecordModel t WHERE t.id = :id AND t.expiresAt < :now")
+    int deleteIfExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecordModel t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_record WHERE status IS NOT NULL ORDER BY created_at LIMIT :count", nativeQuery = true)
+    int deleteOldest(@Param("count") int count);
+}
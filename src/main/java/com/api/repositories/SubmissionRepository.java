@@ -1,10 +1,25 @@
 package com.api.repositories;
 
 import com.api.models.SubmissionModel;
+import com.api.models.SubmissionSummaryModel;
+import com.api.models.enums.Grade;
+import com.api.models.enums.SubmissionType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface SubmissionRepository extends JpaRepository<SubmissionModel, Integer> {
@@ -12,6 +27,36 @@ public interface SubmissionRepository extends JpaRepository<SubmissionModel, Int
     SubmissionModel save(SubmissionModel user);
     SubmissionModel findById(int id);
     void deleteById(int id);
-    @Query("SELECT t FROM SubmissionModel t")
-    List<SubmissionModel> fetchStatusOnStudentSubmissions();
+    long countByChecksum(String checksum);
+    @Query("SELECT DISTINCT t.checksum FROM SubmissionModel t WHERE t.checksum IN :hashes")
+    List<String> findChecksumsIn(@Param("hashes") Collection<String> hashes);
+    @Query("SELECT t FROM SubmissionModel t WHERE t.id > :after ORDER BY t.id")
+    List<SubmissionModel> findSubmissionsAfter(@Param("after") int after, Pageable pageable);
+    @Query("SELECT new com.api.models.SubmissionSummaryModel(t.user.id, t.type, t.id, t.grade, t.title) " +
+            "FROM SubmissionModel t WHERE t.user.id IN :students ORDER BY t.id")
+    List<SubmissionSummaryModel> fetchSummariesByStudentIds(@Param("students") Collection<Integer> students);
+    @Query("SELECT new com.api.models.SubmissionSummaryModel(t.user.id, t.type, t.id, t.grade, t.title) " +
+            "FROM SubmissionModel t ORDER BY t.id")
+    List<SubmissionSummaryModel> fetchAllSummaries();
+    @Query("SELECT new com.api.models.SubmissionSummaryModel(u.id, t.type, t.id, t.grade, t.title) " +
+            "FROM SubmissionModel t LEFT JOIN t.user u WHERE t.id IN :ids")
+    List<SubmissionSummaryModel> fetchSummariesByIds(@Param("ids") Collection<Integer> ids);
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = UserRepository.STREAMING_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT NEW map(t.id as id, t.user.id as student, t.type as type, t.title as title, t.description as description, " +
+            "t.grade as grade, t.fileName as fileName, t.fileType as fileType, t.fileSize as fileSize, t.checksum as checksum) " +
+            "FROM SubmissionModel t ORDER BY t.id")
+    Stream<Map<String, Object>> streamSubmissions();
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = UserRepository.STREAMING_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT NEW map(t.id as id, s.id as student, s.name as name, s.surname as surname, s.email as email, t.type as type, " +
+            "t.title as title, t.grade as grade, t.fileName as fileName, t.fileType as fileType, t.fileSize as fileSize, t.checksum as checksum, " +
+            "t.storageCodec as storageCodec) FROM SubmissionModel t, StudentModel s LEFT JOIN s.supervisor sv WHERE s.id = t.user.id AND t.checksum IS NOT NULL " +
+            "AND (:supervisor IS NULL OR sv.id = :supervisor) AND (:type IS NULL OR t.type = :type) AND (:grade IS NULL OR t.grade = :grade) " +
+            "ORDER BY t.id")
+    Stream<Map<String, Object>> streamFiles(@Param("supervisor") Integer supervisor, @Param("type") SubmissionType type, @Param("grade") Grade grade);
+    @Modifying
+    @Query(value = "INSERT INTO student_submission (USER_ID, SUBMISSION_ID) VALUES (:student, :submission)", nativeQuery = true)
+    int linkToStudent(@Param("student") int student, @Param("submission") int submission);
+    @Modifying
+    @Query(value = "DELETE FROM student_submission WHERE SUBMISSION_ID = :submission", nativeQuery = true)
+    int unlinkFromStudents(@Param("submission") int submission);
 }
@@ -0,0 +1,26 @@
+package com.api.repositories;
+
+import com.api.models.SubmissionStatusModel;
+import com.api.models.enums.Grade;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+public interface SubmissionStatusRepository extends JpaRepository<SubmissionStatusModel, Integer> {
+    String VIEW_FROM = "FROM StudentModel s LEFT JOIN SubmissionStatusModel st ON st.studentId = s.id LEFT JOIN s.supervisor sv " +
+            "WHERE (:supervisor IS NULL OR sv.id = :supervisor) " +
+            "AND (:grade IS NULL OR st.descriptionGrade = :grade OR st.planGrade = :grade OR st.reportGrade = :grade OR st.reportFinalGrade = :grade)";
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM SubmissionStatusModel t WHERE t.studentId = :studentId")
+    SubmissionStatusModel findByIdForUpdate(@Param("studentId") Integer studentId);
+    @Query("SELECT s.id, st " + VIEW_FROM + " AND s.id > :after ORDER BY s.id")
+    List<Object[]> findViewAfter(@Param("supervisor") Integer supervisor, @Param("grade") Grade grade, @Param("after") int after, Pageable pageable);
+}
@@ -0,0 +1,29 @@
+package com.api.repositories;
+
+import com.api.models.SubmissionVersionModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SubmissionVersionRepository extends JpaRepository<SubmissionVersionModel, Integer> {
+    long countByStoredHash(String storedHash);
+    @Query("SELECT DISTINCT t.storedHash FROM SubmissionVersionModel t WHERE t.storedHash IN :hashes")
+    List<String> findStoredHashesIn(@Param("hashes") Collection<String> hashes);
+    @Query("SELECT t FROM SubmissionVersionModel t WHERE t.submissionId = :submission ORDER BY t.version")
+    List<SubmissionVersionModel> findBySubmission(@Param("submission") int submission);
+    @Query("SELECT t FROM SubmissionVersionModel t WHERE t.submissionId = :submission AND t.version >= :version ORDER BY t.version")
+    List<SubmissionVersionModel> findBySubmissionFrom(@Param("submission") int submission, @Param("version") int version);
+    @Query("SELECT COALESCE(MAX(t.version), 0) FROM SubmissionVersionModel t WHERE t.submissionId = :submission")
+    int findLatestVersion(@Param("submission") int submission);
+    @Query("SELECT DISTINCT t.storedHash FROM SubmissionVersionModel t WHERE t.submissionId = :submission AND t.storedHash IS NOT NULL")
+    List<String> findBlobsBySubmission(@Param("submission") int submission);
+    @Modifying
+    @Query("DELETE FROM SubmissionVersionModel t WHERE t.submissionId = :submission")
+    int deleteBySubmission(@Param("submission") int submission);
+}
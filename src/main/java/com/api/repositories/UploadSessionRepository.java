@@ -0,0 +1,27 @@
+package com.api.repositories;
+
+import com.api.models.UploadSessionModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSessionModel, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM UploadSessionModel t WHERE t.id = :id")
+    UploadSessionModel findByIdForUpdate(@Param("id") String id);
+    @Query("SELECT t.id FROM UploadSessionModel t WHERE t.updatedAt < :cutoff")
+    List<String> findIdsUpdatedBefore(@Param("cutoff") LocalDateTime cutoff);
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadSessionModel t WHERE t.id = :id AND t.updatedAt < :cutoff")
+    int deleteIfUpdatedBefore(@Param("id") String id, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,26 +1,75 @@
 package com.api.repositories;
 
-import com.api.models.StudentModel;
-import com.api.models.SupervisorModel;
 import com.api.models.UserModel;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserModel, Integer> {
+    // Integer.MIN_VALUE makes Connector/J stream rows instead of buffering the result set
+    String STREAMING_FETCH_SIZE = "-2147483648";
+
     UserModel findById(int id);
-    @Query("SELECT NEW map(email as email, surname as surname, id as id, name as name) FROM UserModel")
-    List<UserModel> findAllUsers();
-    @Query("SELECT t FROM SupervisorModel t")
-    List<SupervisorModel> findAllSupervisors();
-    @Query("SELECT NEW map(email as email, surname as surname, id as id, name as name) FROM StudentModel")
-    List<StudentModel> findAllStudents();
-    @Query("SELECT t FROM StudentModel t")
-    List<StudentModel> findAllStudentsWithRespectiveSupervisor();
+    @Query("SELECT NEW map(t.email as email, t.surname as surname, t.id as id, t.name as name) FROM UserModel t WHERE t.id > :after ORDER BY t.id")
+    List<Map<String, Object>> findUsersAfter(@Param("after") int after, Pageable pageable);
+    @Query("SELECT NEW map(t.id as id, t.name as name, t.surname as surname, t.email as email) FROM SupervisorModel t WHERE t.id > :after ORDER BY t.id")
+    List<Map<String, Object>> findSupervisorsAfter(@Param("after") int after, Pageable pageable);
+    @Query("SELECT NEW map(sv.id as supervisor, t.id as id, t.name as name, t.surname as surname, t.email as email) " +
+            "FROM StudentModel t JOIN t.supervisor sv WHERE sv.id IN :supervisors ORDER BY t.id")
+    List<Map<String, Object>> findStudentsBySupervisors(@Param("supervisors") Collection<Integer> supervisors);
+    @Query("SELECT NEW map(sv.id as requestedSupervisor, t.id as id, t.name as name, t.surname as surname, t.email as email, " +
+            "rs.id as requestedSubmission, cr.id as confirmedReaderSubmission, so.id as setOpponentSubmission) " +
+            "FROM StudentModel t JOIN t.requestedSupervisor sv LEFT JOIN t.requestedSubmission rs " +
+            "LEFT JOIN t.confirmedReaderSubmission cr LEFT JOIN t.setOpponentSubmission so WHERE sv.id IN :supervisors ORDER BY t.id")
+    List<Map<String, Object>> findStudentsRequestingSupervisors(@Param("supervisors") Collection<Integer> supervisors);
+    @Query("SELECT NEW map(t.email as email, t.surname as surname, t.id as id, t.name as name) FROM StudentModel t WHERE t.id > :after ORDER BY t.id")
+    List<Map<String, Object>> findStudentsAfter(@Param("after") int after, Pageable pageable);
+    @Query("SELECT NEW map(t.id as id, t.name as name, t.surname as surname, t.email as email, " +
+            "sv.id as supervisorId, sv.name as supervisorName, sv.surname as supervisorSurname, sv.email as supervisorEmail, " +
+            "rsv.id as requestedSupervisorId, rsv.name as requestedSupervisorName, rsv.surname as requestedSupervisorSurname, rsv.email as requestedSupervisorEmail, " +
+            "rs.id as requestedSubmission, cr.id as confirmedReaderSubmission, so.id as setOpponentSubmission) " +
+            "FROM StudentModel t LEFT JOIN t.supervisor sv LEFT JOIN t.requestedSupervisor rsv LEFT JOIN t.requestedSubmission rs " +
+            "LEFT JOIN t.confirmedReaderSubmission cr LEFT JOIN t.setOpponentSubmission so WHERE t.id > :after ORDER BY t.id")
+    List<Map<String, Object>> findStudentsWithRespectiveSupervisorAfter(@Param("after") int after, Pageable pageable);
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT NEW map(t.id as id, t.name as name, t.surname as surname, t.email as email, sv.id as supervisor) " +
+            "FROM StudentModel t LEFT JOIN t.supervisor sv ORDER BY t.id")
+    Stream<Map<String, Object>> streamStudents();
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT NEW map(t.id as id, t.name as name, t.surname as surname, t.email as email) FROM SupervisorModel t ORDER BY t.id")
+    Stream<Map<String, Object>> streamSupervisors();
     List<UserModel> findAll();
     void deleteById(int id);
     UserModel save(UserModel user);
     UserModel findByEmail(String email);
+    @Query("SELECT t.email FROM UserModel t WHERE t.email IN :emails")
+    List<String> findEmailsIn(@Param("emails") Collection<String> emails);
+    @Query("SELECT t.tokenVersion FROM UserModel t WHERE t.id = :id")
+    Integer findTokenVersionById(@Param("id") Integer id);
+    @Query(value = "SELECT t.id FROM user t WHERE t.id IN :ids AND t.Account_type = :type FOR UPDATE", nativeQuery = true)
+    List<Integer> lockIdsByAccountType(@Param("ids") Collection<Integer> ids, @Param("type") String type);
+    // Changes the account type keeping the id; tokens carry the roles, so outstanding ones are revoked
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE user t SET t.Account_type = :type, t.token_version = t.token_version + 1 WHERE t.id IN :ids", nativeQuery = true)
+    int updateAccountType(@Param("ids") Collection<Integer> ids, @Param("type") String type);
+    @Modifying
+    @Query(value = "DELETE FROM user_role WHERE USER_ID IN :ids", nativeQuery = true)
+    int deleteRoles(@Param("ids") Collection<Integer> ids);
+    @Modifying
+    @Query(value = "INSERT INTO user_role (USER_ID, ROLE_ID) SELECT t.id, r.id FROM user t JOIN roles r ON r.id IN :roleIds WHERE t.id IN :ids", nativeQuery = true)
+    int insertRoles(@Param("ids") Collection<Integer> ids, @Param("roleIds") Collection<Integer> roleIds);
 }
@@ -1,5 +1,6 @@
 package com.api.services;
 
+import com.api.config.security.TokenPrincipal;
 import com.api.controllers.exceptions.BadRequestException;
 import com.api.controllers.exceptions.NotFoundException;
 import com.api.models.StudentModel;
@@ -35,7 +36,7 @@ public class BiddingService {
         try {
             if (submissionService.findById(submissionId) == null) throw new NotFoundException();
             SubmissionModel submission = submissionService.findById(submissionId);
-            StudentModel student = studentRepository.findByEmail(authentication.getName());
+            StudentModel student = studentRepository.findById(TokenPrincipal.idOf(authentication));
             student.setRequestedSubmission(submission);
             submission.getRequestedReaders().add(student);
             userService.save(student);
@@ -4,8 +4,10 @@ import com.api.controllers.exceptions.BadRequestException;
 import com.api.controllers.exceptions.InternalErrorException;
 import com.api.controllers.exceptions.NotFoundException;
 import com.api.models.CalendarModel;
+import com.api.models.CursorPageModel;
 import com.api.repositories.CalendarRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -20,13 +22,19 @@ public class CalendarService {
     @Autowired
     private CalendarRepository calendarRepository;
 
+    @Autowired
+    private PaginationService paginationService;
+
     /**
-     * Method which returns all registered calendar events
+     * Method which returns a page of registered calendar events
      *
-     * @return Iterable<CalendarModel> collection of all calendar events
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<CalendarModel> page of calendar events
      */
-    public @ResponseBody Iterable<CalendarModel> getAllEvents() {
-        return calendarRepository.findAll();
+    public CursorPageModel<CalendarModel> getAllEvents(String cursor, Integer size) {
+        Pageable request = paginationService.request(size);
+        return paginationService.page(calendarRepository.findEventsAfter(paginationService.after(cursor), request), request, CalendarModel::getId);
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.api.services;
 
+import com.api.config.security.TokenPrincipal;
 import com.api.controllers.exceptions.InternalErrorException;
 import com.api.controllers.exceptions.MethodNotAllowedException;
 import com.api.controllers.exceptions.NotFoundException;
@@ -82,7 +83,7 @@ public class CommentService {
                 throw new NotFoundException();
             }
             SubmissionModel submission = submissionRepository.findById(id);
-            UserModel user = userService.getUserByEmail(authentication.getName());
+            UserModel user = userService.findById(TokenPrincipal.idOf(authentication));
             submission.getComments().add(comment);
             comment.setSubmission(submission);
             comment.setAuthor(user);
@@ -105,7 +106,7 @@ public class CommentService {
      */
     public ResponseEntity updateComment(Authentication authentication, int id, CommentModel oldComment) {
         try {
-            UserModel userModel = userService.getUserByEmail(authentication.getName());
+            UserModel userModel = userService.findById(TokenPrincipal.idOf(authentication));
             List<CommentModel> comments = userModel.getComments();
             if (!comments.stream().filter(e -> e.getId() == id).findFirst().isPresent()) {
                 throw new MethodNotAllowedException("Not your comment");
@@ -0,0 +1,93 @@
+package com.api.services;
+
+import com.api.repositories.SubmissionRepository;
+import com.api.repositories.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes whole tables as newline-delimited JSON. Rows are read as scalar
+ * projections from a forward-only, read-only cursor and written one at a
+ * time, so neither the persistence context nor the response buffer grows
+ * with the table size.
+ */
+@Service
+public class ExportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Method which writes all students as NDJSON
+     *
+     * @param out the stream to write to
+     * @return long the number of rows written
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long exportStudents(OutputStream out) throws IOException {
+        try (Stream<Map<String, Object>> rows = userRepository.streamStudents()) {
+            return write(rows, out);
+        }
+    }
+
+    /**
+     * Method which writes all supervisors as NDJSON
+     *
+     * @param out the stream to write to
+     * @return long the number of rows written
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long exportSupervisors(OutputStream out) throws IOException {
+        try (Stream<Map<String, Object>> rows = userRepository.streamSupervisors()) {
+            return write(rows, out);
+        }
+    }
+
+    /**
+     * Method which writes the metadata of all submissions as NDJSON
+     *
+     * @param out the stream to write to
+     * @return long the number of rows written
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public long exportSubmissions(OutputStream out) throws IOException {
+        try (Stream<Map<String, Object>> rows = submissionRepository.streamSubmissions()) {
+            return write(rows, out);
+        }
+    }
+
+    private long write(Stream<Map<String, Object>> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<Map<String, Object>> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+}
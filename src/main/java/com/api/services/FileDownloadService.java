@@ -0,0 +1,174 @@
+package com.api.services;
+
+import com.api.storage.FileContent;
+import com.api.storage.StoredContent;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+@Service
+public class FileDownloadService {
+
+    private static final String RANGE_UNIT = "bytes";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Method which writes stored content to the response, honouring
+     * conditional (If-None-Match, If-Range) and single byte range requests.
+     * Ranges are only offered on content which is seekable
+     *
+     * @param request the servlet request
+     * @param response the servlet response
+     * @param content the content to serve
+     * @param fileName the file name offered to the client
+     * @param fileType the content type of the file, may be null
+     * @throws IOException if writing the response fails
+     */
+    public void serve(HttpServletRequest request, HttpServletResponse response, StoredContent content, String fileName, String fileType) throws IOException {
+        long length = content.getLength();
+        String etag = content.getChecksum() != null ? "\"" + content.getChecksum() + "\"" : null;
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, content.isSeekable() ? RANGE_UNIT : "none");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
+        }
+
+        response.setContentType(StringUtils.hasText(fileType) ? fileType : MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+                .filename(fileName, StandardCharsets.UTF_8).build().toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && content.isSeekable() && rangeApplies(request.getHeader(HttpHeaders.IF_RANGE), etag)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, RANGE_UNIT + " */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, RANGE_UNIT + " " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        if (content instanceof FileContent && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Let the container copy the file straight to the socket
+            request.setAttribute(SENDFILE_FILENAME, ((FileContent) content).getPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        content.transferTo(start, count, target);
+        response.flushBuffer();
+    }
+
+    /**
+     * Method which checks an If-None-Match header against a strong ETag
+     *
+     * @param header the header value, may be null
+     * @param etag the current ETag
+     * @return boolean whether the client copy is current
+     */
+    private static boolean matches(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method which decides whether a Range header may be honoured.
+     * If-Range only ever matches the strong ETag, since no
+     * modification date is kept for stored files
+     *
+     * @param ifRange the If-Range header value, may be null
+     * @param etag the current ETag, may be null
+     * @return boolean whether the range applies
+     */
+    private static boolean rangeApplies(String ifRange, String etag) {
+        return ifRange == null || (etag != null && ifRange.trim().equals(etag));
+    }
+
+    /**
+     * Method which parses a single byte range. Multiple ranges are
+     * answered with the whole file, which RFC 7233 permits
+     *
+     * @param header the Range header value
+     * @param length the content length
+     * @return long[] the inclusive bounds, an empty array to serve
+     * the whole file, or null if the range cannot be satisfied
+     */
+    static long[] parseRange(String header, long length) {
+        String value = header.trim();
+        if (!value.startsWith(RANGE_UNIT + "=") || value.indexOf(',') != -1) {
+            return new long[0];
+        }
+        String spec = value.substring(RANGE_UNIT.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start < 0 || start >= length || end < start) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
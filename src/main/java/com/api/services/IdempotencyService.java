@@ -0,0 +1,99 @@
+package com.api.services;
+
+import com.api.models.IdempotencyRecordModel;
+import com.api.repositories.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Keeps the idempotency_record table behind the Idempotency-Key header.
+ * A request claims its key before it runs and stores its response once
+ * it completes. Records expire after idempotency.ttl-minutes, claims of
+ * requests which never completed after idempotency.pending-timeout-minutes,
+ * and the table is trimmed to idempotency.max-records.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyService.class);
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Value("${idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${idempotency.pending-timeout-minutes:30}")
+    private long pendingTimeoutMinutes;
+
+    @Value("${idempotency.max-records:100000}")
+    private long maxRecords;
+
+    /**
+     * Method which claims a key for a request about to run
+     *
+     * @param id the scoped key
+     * @param fingerprint the fingerprint of the request
+     * @return IdempotencyRecordModel null if the key was claimed,
+     * otherwise the record of the earlier request with the key
+     */
+    @Transactional
+    public IdempotencyRecordModel claim(String id, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        idempotencyRecordRepository.deleteIfExpired(id, now);
+        if (idempotencyRecordRepository.claim(id, fingerprint, now, now.plusMinutes(pendingTimeoutMinutes)) == 1) {
+            return null;
+        }
+        return idempotencyRecordRepository.findById(id).orElse(null);
+    }
+
+    /**
+     * Method which stores the response of a request which claimed a key
+     *
+     * @param id the scoped key
+     * @param status the response status
+     * @param contentType the response content type, may be null
+     * @param body the response body
+     */
+    @Transactional
+    public void complete(String id, int status, String contentType, byte[] body) {
+        idempotencyRecordRepository.complete(id, status, contentType, body, LocalDateTime.now(ZoneOffset.UTC).plusMinutes(ttlMinutes));
+    }
+
+    /**
+     * Method which gives up the claim of a request whose response is not
+     * kept, so that a retry runs again
+     *
+     * @param id the scoped key
+     */
+    @Transactional
+    public void release(String id) {
+        idempotencyRecordRepository.release(id);
+    }
+
+    /**
+     * Method which periodically removes expired records and trims the
+     * table to its maximum size, oldest first. Claims of requests still
+     * in progress are only removed once they expire
+     */
+    @Scheduled(fixedDelayString = "${idempotency.sweep-ms:600000}")
+    @Transactional
+    public void removeExpiredRecords() {
+        int expired = idempotencyRecordRepository.deleteExpired(LocalDateTime.now(ZoneOffset.UTC));
+        long excess = idempotencyRecordRepository.count() - maxRecords;
+        if (excess > 0) {
+            idempotencyRecordRepository.deleteOldest((int) Math.min(excess, Integer.MAX_VALUE));
+        }
+        if (expired > 0 || excess > 0) {
+            LOGGER.info("Removed {} expired and {} excess idempotency records", expired, Math.max(excess, 0));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.api.services;
+
+import com.api.controllers.exceptions.BadRequestException;
+import com.api.models.CursorPageModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination on id for the list endpoints. A page is fetched with
+ * WHERE id > :after ORDER BY id and one row more than requested, which
+ * tells whether a next page exists without a count query.
+ */
+@Service
+public class PaginationService {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    @Value("${pagination.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${pagination.max-page-size:500}")
+    private int maxPageSize;
+
+    /**
+     * Method which builds the page request for a requested page size,
+     * falling back to the default and capping at the maximum
+     *
+     * @param size the requested page size, may be null
+     * @return Pageable the request, one row larger than the page
+     */
+    public Pageable request(Integer size) {
+        if (size != null && size < 1) {
+            throw new BadRequestException("Invalid page size " + size);
+        }
+        int pageSize = size == null ? defaultPageSize : Math.min(size, maxPageSize);
+        return PageRequest.of(0, pageSize + 1);
+    }
+
+    /**
+     * Method which decodes a cursor into the last id of the previous page
+     *
+     * @param cursor the cursor, null for the first page
+     * @return int the id to continue after
+     */
+    public int after(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(CURSOR_PREFIX)) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return Integer.parseInt(value.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Method which turns the rows fetched for a page request into a page
+     *
+     * @param rows the rows, ordered by id
+     * @param request the page request the rows were fetched with
+     * @param id function returning the id of a row
+     * @return CursorPageModel<T> the page
+     */
+    public <T> CursorPageModel<T> page(List<T> rows, Pageable request, Function<T, Integer> id) {
+        int pageSize = request.getPageSize() - 1;
+        if (rows.size() <= pageSize) {
+            return new CursorPageModel<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        String next = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + id.apply(items.get(pageSize - 1))).getBytes(StandardCharsets.UTF_8));
+        return new CursorPageModel<>(items, next);
+    }
+
+    /**
+     * Method which renders a page as a plain JSON array, as the list
+     * endpoints returned before pagination, with the next cursor in
+     * the X-Next-Cursor and Link headers
+     *
+     * @param page the page
+     * @return ResponseEntity<List<T>> the response
+     */
+    public <T> ResponseEntity<List<T>> respond(CursorPageModel<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.getNext() != null) {
+            String link = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNext()).build().toUriString();
+            response.header(NEXT_CURSOR_HEADER, page.getNext());
+            response.header("Link", "<" + link + ">; rel=\"next\"");
+        }
+        return response.body(page.getItems());
+    }
+}
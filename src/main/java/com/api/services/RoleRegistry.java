@@ -0,0 +1,128 @@
+package com.api.services;
+
+import com.api.models.RoleModel;
+import com.api.models.UserModel;
+import com.api.models.enums.Role;
+import com.api.repositories.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Holds the rows of the static roles table, read once at startup, so
+ * assigning roles and building authorities needs no role lookups.
+ * Roles are handed out as references attached to the caller's
+ * persistence context, which only carry the id.
+ */
+@Service
+public class RoleRegistry {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Map<Role, RoleModel> roles;
+
+    /**
+     * Method which reads the roles table, adding any Role
+     * constant missing from it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public synchronized void load() {
+        Map<Role, RoleModel> loaded = new EnumMap<>(Role.class);
+        roleRepository.findAll().forEach(e -> loaded.put(e.getRole(), e));
+        for (Role role : Role.values()) {
+            if (!loaded.containsKey(role)) {
+                RoleModel model = new RoleModel();
+                model.setRole(role);
+                loaded.put(role, roleRepository.save(model));
+            }
+        }
+        roles = loaded;
+    }
+
+    /**
+     * Method which returns a reference to the row of a role
+     *
+     * @param role the role
+     * @return RoleModel the role reference
+     */
+    public RoleModel reference(Role role) {
+        return entityManager.getReference(RoleModel.class, registered().get(role).getId());
+    }
+
+    /**
+     * Method which returns references to the rows of roles
+     *
+     * @param roles the roles
+     * @return List<RoleModel> the role references
+     */
+    public List<RoleModel> references(Collection<Role> roles) {
+        Set<Role> distinct = EnumSet.noneOf(Role.class);
+        distinct.addAll(roles);
+        List<RoleModel> list = new ArrayList<>(distinct.size());
+        for (Role role : distinct) {
+            list.add(reference(role));
+        }
+        return list;
+    }
+
+    /**
+     * Method which returns the ids of the rows of roles
+     *
+     * @param roles the roles
+     * @return Set<Integer> the role ids
+     */
+    public Set<Integer> ids(Collection<Role> roles) {
+        Set<Integer> set = new TreeSet<>();
+        for (Role role : roles) {
+            set.add(registered().get(role).getId());
+        }
+        return set;
+    }
+
+    /**
+     * Method which returns the roles of a user, resolved
+     * by id so role references are not initialized
+     *
+     * @param user the user
+     * @return Set<Role> the roles
+     */
+    public Set<Role> rolesOf(UserModel user) {
+        Set<Role> set = EnumSet.noneOf(Role.class);
+        for (RoleModel model : user.getRoles()) {
+            for (Map.Entry<Role, RoleModel> e : registered().entrySet()) {
+                if (e.getValue().getId().equals(model.getId())) {
+                    set.add(e.getKey());
+                }
+            }
+        }
+        return set;
+    }
+
+    private Map<Role, RoleModel> registered() {
+        Map<Role, RoleModel> current = roles;
+        if (current == null) {
+            // Used before the application reported ready
+            load();
+            current = roles;
+        }
+        return current;
+    }
+}
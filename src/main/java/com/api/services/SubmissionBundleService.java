@@ -0,0 +1,208 @@
+package com.api.services;
+
+import com.api.config.security.TokenPrincipal;
+import com.api.controllers.exceptions.MethodNotAllowedException;
+import com.api.models.enums.Grade;
+import com.api.models.enums.StorageCodec;
+import com.api.models.enums.SubmissionType;
+import com.api.repositories.SubmissionRepository;
+import com.api.storage.BlobStore;
+import com.api.storage.StoredContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.api.models.enums.Role.ROLE_ADMIN;
+import static com.api.models.enums.Role.ROLE_COORDINATOR;
+
+/**
+ * Writes the files of a set of submissions as a ZIP straight to a stream.
+ * Submissions are read from a forward-only cursor and each file is copied
+ * from the blob store into its entry, so only the ZIP buffers are held in
+ * memory whatever the size of the bundle. A manifest.csv describing every
+ * submission comes first, read from a second pass over the same query.
+ *
+ * Files which are already compressed (PDF, office documents, images,
+ * archives) are STORED; this takes an extra read of the file to compute
+ * the CRC the entry header needs, but saves deflating them for nothing.
+ */
+@Service
+public class SubmissionBundleService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionBundleService.class);
+
+    public static final String ZIP = "application/zip";
+    public static final String MANIFEST = "manifest.csv";
+
+    private static final String[] MANIFEST_COLUMNS = {"submission", "student", "name", "surname", "email", "type", "title", "grade", "file", "size", "sha256", "entry"};
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "pdf", "zip", "gz", "tgz", "7z", "rar", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub",
+            "jpg", "jpeg", "png", "gif", "webp", "mp3", "mp4", "mov"));
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    /**
+     * Method which writes the files of the submissions matching a filter as a ZIP.
+     * Supervisors only get the submissions of their own students
+     *
+     * @param authentication user authentication
+     * @param supervisor optional supervisor id to filter students by
+     * @param type optional submission type
+     * @param grade optional grade
+     * @param out the stream to write to
+     * @return long the number of files written
+     * @throws IOException if a file cannot be read or writing fails
+     */
+    @Transactional(readOnly = true)
+    public long writeBundle(Authentication authentication, Integer supervisor, SubmissionType type, Grade grade, OutputStream out) throws IOException {
+        TokenPrincipal principal = (TokenPrincipal) authentication.getPrincipal();
+        if (!principal.getRoles().contains(ROLE_COORDINATOR) && !principal.getRoles().contains(ROLE_ADMIN)) {
+            if (supervisor != null && supervisor != principal.getId()) {
+                throw new MethodNotAllowedException("Not Allowed");
+            }
+            supervisor = principal.getId();
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        zip.putNextEntry(new ZipEntry(MANIFEST));
+        Writer manifest = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        writeCsvLine(manifest, (Object[]) MANIFEST_COLUMNS);
+        try (Stream<Map<String, Object>> rows = submissionRepository.streamFiles(supervisor, type, grade)) {
+            Iterator<Map<String, Object>> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Map<String, Object> row = iterator.next();
+                boolean stored = blobStore.get((String) row.get("checksum"), (StorageCodec) row.get("storageCodec")) != null;
+                writeCsvLine(manifest, row.get("id"), row.get("student"), row.get("name"), row.get("surname"), row.get("email"),
+                        row.get("type"), row.get("title"), row.get("grade"), row.get("fileName"), row.get("fileSize"),
+                        row.get("checksum"), stored ? entryName(row) : null);
+            }
+        }
+        manifest.flush();
+        zip.closeEntry();
+
+        long count = 0;
+        try (Stream<Map<String, Object>> rows = submissionRepository.streamFiles(supervisor, type, grade)) {
+            Iterator<Map<String, Object>> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Map<String, Object> row = iterator.next();
+                StoredContent content = blobStore.get((String) row.get("checksum"), (StorageCodec) row.get("storageCodec"));
+                if (content == null) {
+                    LOGGER.warn("Missing blob {} of submission {}", row.get("checksum"), row.get("id"));
+                    continue;
+                }
+                writeEntry(zip, entryName(row), content, isCompressed((String) row.get("fileName"), (String) row.get("fileType")));
+                count++;
+            }
+        }
+        zip.finish();
+        zip.flush();
+        return count;
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, StoredContent content, boolean compressed) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (compressed) {
+            CrcChannel crc = new CrcChannel();
+            content.transferTo(0, content.getLength(), crc);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.getLength());
+            entry.setCompressedSize(content.getLength());
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        content.transferTo(0, content.getLength(), Channels.newChannel(zip));
+        zip.closeEntry();
+    }
+
+    /**
+     * Method which names the entry of a submission file, one
+     * directory per student holding one file per submission type
+     *
+     * @param row the submission row
+     * @return String the entry name
+     */
+    private static String entryName(Map<String, Object> row) {
+        String student = row.get("student") + "_" + row.get("surname") + "_" + row.get("name");
+        String file = row.get("type") + "_" + (row.get("fileName") != null ? row.get("fileName") : "file");
+        return sanitize(student) + "/" + sanitize(file);
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^\\p{L}\\p{N}._-]+", "_");
+    }
+
+    private static boolean isCompressed(String fileName, String fileType) {
+        String extension = StringUtils.getFilenameExtension(fileName);
+        if (extension != null && COMPRESSED_EXTENSIONS.contains(extension.toLowerCase())) {
+            return true;
+        }
+        return fileType != null && (fileType.equals("application/pdf") || fileType.startsWith("image/")
+                || fileType.startsWith("video/") || fileType.startsWith("audio/"));
+    }
+
+    private static void writeCsvLine(Writer out, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String value = values[i] != null ? values[i].toString() : "";
+            if (value.indexOf(',') != -1 || value.indexOf('"') != -1 || value.indexOf('\n') != -1 || value.indexOf('\r') != -1) {
+                value = "\"" + value.replace("\"", "\"\"") + "\"";
+            }
+            out.write(value);
+        }
+        out.write("\r\n");
+    }
+
+    private static class CrcChannel implements WritableByteChannel {
+
+        private final CRC32 crc = new CRC32();
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            crc.update(src);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        long getValue() {
+            return crc.getValue();
+        }
+    }
+}
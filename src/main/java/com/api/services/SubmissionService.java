@@ -1,28 +1,54 @@
 package com.api.services;
 
+import com.api.config.security.TokenPrincipal;
 import com.api.controllers.exceptions.*;
+import com.api.models.CursorPageModel;
 import com.api.models.StudentModel;
 import com.api.models.SubmissionModel;
+import com.api.models.SubmissionStatusModel;
+import com.api.models.SubmissionSummaryModel;
+import com.api.models.SubmissionVersionModel;
+import com.api.models.enums.Grade;
+import com.api.models.enums.SubmissionType;
 import com.api.repositories.StudentRepository;
 import com.api.repositories.SubmissionRepository;
+import com.api.repositories.SubmissionStatusRepository;
+import com.api.storage.BlobStore;
+import com.api.storage.StoredBlob;
+import com.api.storage.StoredContent;
 import org.aspectj.weaver.ast.Not;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.util.*;
 import springfox.documentation.annotations.ApiIgnore;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.api.models.enums.Grade.F;
 import static com.api.models.enums.Grade.PENDING;
@@ -31,6 +57,8 @@ import static com.api.models.enums.SubmissionType.*;
 @Service
 public class SubmissionService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionService.class);
+
     @Autowired
     private SubmissionRepository submissionRepository;
 
@@ -40,6 +68,40 @@ public class SubmissionService {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private SubmissionStatusRepository submissionStatusRepository;
+
+    @Autowired
+    private SubmissionStatusService submissionStatusService;
+
+    @Autowired
+    private SubmissionVersionService submissionVersionService;
+
+    @Autowired
+    private PaginationService paginationService;
+
+    @Value("${submission.upload.max-bytes:209715200}")
+    private long maxUploadBytes;
+
+    @Value("${submission.storage.gc-grace-ms:3600000}")
+    private long blobGraceMillis;
+
+    @Value("${submission.storage.gc-batch-size:500}")
+    private int blobBatchSize;
+
+    /**
+     * Blobs a release found unreferenced but could not remove yet, because
+     * they were used within the grace period or the delete failed
+     */
+    private final Set<String> blobCandidates = ConcurrentHashMap.newKeySet();
+
+
     /**
      * Method which finds a file by ID
      *
@@ -51,12 +113,15 @@ public class SubmissionService {
     }
 
     /**
-     * Method which finds all submissions
+     * Method which finds a page of submissions, ordered by id
      *
-     * @return List<SubmissionModel> list of all submissions
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<SubmissionModel> page of submissions
      */
-    public List<SubmissionModel> findAll() {
-       return submissionRepository.findAll();
+    public CursorPageModel<SubmissionModel> findAll(String cursor, Integer size) {
+        Pageable request = paginationService.request(size);
+        return paginationService.page(submissionRepository.findSubmissionsAfter(paginationService.after(cursor), request), request, SubmissionModel::getId);
     }
 
     /**
@@ -70,25 +135,23 @@ public class SubmissionService {
     }
 
     /**
-     * Method which finds a specific submission file
+     * Method which streams a specific submission file,
+     * supporting conditional and range requests
      *
      * @param id the submission id of the file
-     * @return ResponseEntity the response
+     * @param request the servlet request
+     * @param response the servlet response
+     * @throws NotFoundException
+     * @throws IOException if writing the response fails
      */
-    public ResponseEntity getFile(int id) throws NotFoundException {
-        try {
-            SubmissionModel submission = submissionRepository.findById(id);
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("application/pdf"));
-            String filename = submission.getFileName();
-            headers.add("Content-Disposition", "inline; filename=" + submission.getFileName());
-            headers.setContentDispositionFormData(filename, filename); // Comment out to view file inside browser
-            headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
-            ResponseEntity<byte[]> response = new ResponseEntity<byte[]>(submission.getData(), headers, HttpStatus.OK);
-            return response;
-        } catch (Exception e) {
+    @Transactional(readOnly = true)
+    public void getFile(int id, HttpServletRequest request, HttpServletResponse response) throws NotFoundException, IOException {
+        SubmissionModel submission = submissionRepository.findById(id);
+        StoredContent content = submission == null || submission.getChecksum() == null ? null : blobStore.get(submission.getChecksum(), submission.getStorageCodec());
+        if (content == null) {
             throw new NotFoundException("File not found");
         }
+        fileDownloadService.serve(request, response, content, submission.getFileName(), submission.getFileType());
     }
 
     /**
@@ -100,60 +163,86 @@ public class SubmissionService {
      * @return ResponseEntity the response
      */
     @ApiIgnore
-    @SuppressWarnings("Duplicates")
+    @Transactional
     public ResponseEntity createSubmission(Authentication authentication, @ModelAttribute SubmissionModel submission, MultipartFile file) {
         String fileName = StringUtils.cleanPath(file.getOriginalFilename());
-        try {
-            StudentModel student = studentRepository.findByEmail(authentication.getName());
-            if (submission.getType() == PLAN ) {
-                if (!student.getSubmissions().stream().filter(e -> e.getType().equals(DESCRIPTION)).findFirst().isPresent()) {
-                    throw new BadRequestException("Missing description submission");
-                }
-                student.getSubmissions().forEach(e -> {
-                    if(e.getType() ==  DESCRIPTION) {
-                        if(e.getGrade() == PENDING || e.getGrade() == F) {
-                            throw new BadRequestException( e.getGrade() + " grade on " + e.getType());
-                        }
-                    }
-                });
-            }
+        checkFileSize(file.getSize());
+        try (InputStream in = file.getInputStream()) {
+            return createSubmission(TokenPrincipal.idOf(authentication), submission, fileName, file.getContentType(), in);
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store file " + fileName, ex);
+        }
+    }
 
-            if (submission.getType() == REPORT ) {
-                if (!student.getSubmissions().stream().filter(e -> e.getType().equals(PLAN)).findFirst().isPresent() ) {
-                    throw new BadRequestException("Missing plan submission");
-                }
-                student.getSubmissions().forEach(e -> {
-                    if (e.getType() ==  PLAN) {
-                        if (e.getGrade() == PENDING || e.getGrade() == F) {
-                            throw new BadRequestException( e.getGrade() + " grade on " + e.getType());
-                        }
-                    }
-                });
-            }
-            if (submission.getType() == REPORT_FINAL) {
-                if (!student.getSubmissions().stream().filter(e -> e.getType().equals(REPORT)).findFirst().isPresent() ) {
-                    throw new BadRequestException("Missing report submission");
-                }
-            }
+    /**
+     * Method which validates and saves a submission whose
+     * file content is read from a stream
+     *
+     * @param studentId the id of the submitting student
+     * @param submission the submission to save
+     * @param fileName the cleaned file name
+     * @param fileType the content type of the file
+     * @param content the file content
+     * @return ResponseEntity the response
+     * @throws IOException if the content cannot be read or stored
+     * @throws NotAcceptableException if the student already has a submission of the type
+     */
+    @Transactional
+    public ResponseEntity createSubmission(int studentId, SubmissionModel submission, String fileName, String fileType, InputStream content) throws IOException {
+        StudentModel student = studentRepository.findById(studentId);
+        SubmissionStatusModel status = checkAdmission(studentId, submission.getType());
+        if (fileName.contains("..")) {
+            throw new FileStorageException("Filename contains invalid path sequence " + fileName);
+        }
+        submission.setFileName(fileName);
+        submission.setFileType(fileType);
+        if (status != null && status.getEntry(submission.getType()) != null) {
+            throw new NotAcceptableException(submission.getType() + " already exists");
+        }
+        submission.setUser(student);
+        storeFile(submission, content);
+        try {
+            submissionRepository.saveAndFlush(submission);
+        } catch (DataIntegrityViolationException e) {
+            // Lost a race with a concurrent submission of the same type, caught by uk_submission_user_type
+            throw new NotAcceptableException(submission.getType() + " already exists");
+        }
+        submissionRepository.linkToStudent(student.getId(), submission.getId());
+        submissionStatusService.refresh(student.getId());
+        return new ResponseEntity<>("Submission " + submission.getType() + " successfully saved", HttpStatus.OK);
+    }
 
+    /**
+     * Method which checks that a student may submit a submission of a type,
+     * i.e. that the previous stage (DESCRIPTION, PLAN, REPORT) is in place.
+     * Reads the stored status row of the student rather than their submissions
+     *
+     * @param studentId the id of the submitting student
+     * @param type the submission type
+     * @return SubmissionStatusModel the status of the student, null if they have no submissions
+     * @throws BadRequestException if the previous stage is missing or not passed
+     */
+    public SubmissionStatusModel checkAdmission(int studentId, SubmissionType type) throws BadRequestException {
+        SubmissionStatusModel status = submissionStatusRepository.findById(studentId).orElse(null);
+        if (type == PLAN) {
+            requireStage(status, DESCRIPTION, "Missing description submission", true);
+        }
+        if (type == REPORT) {
+            requireStage(status, PLAN, "Missing plan submission", true);
+        }
+        if (type == REPORT_FINAL) {
+            requireStage(status, REPORT, "Missing report submission", false);
+        }
+        return status;
+    }
 
-            if (fileName.contains("..")) {
-                throw new FileStorageException("Filename contains invalid path sequence " + fileName);
-            }
-            submission.setFileName(fileName);
-            submission.setFileType(file.getContentType());
-            submission.setData(file.getBytes());
-            List<SubmissionModel> submissions = student.getSubmissions();
-            if (submissions.stream().filter(e -> e.getType().equals(submission.getType())).findFirst().isPresent()) {
-                return new ResponseEntity<>( submission.getType() + " already exists", HttpStatus.NOT_ACCEPTABLE);
-            }
-            submission.setUser(student);
-            submissions.add(submission);
-            student.setSubmissions(submissions);
-            userService.save(student);
-            return new ResponseEntity<>("Submission " + submission.getType() + " successfully saved", HttpStatus.OK);
-        } catch (IOException ex) {
-            throw new FileStorageException("Could not store file " + fileName, ex);
+    private static void requireStage(SubmissionStatusModel status, SubmissionType stage, String missing, boolean passed) {
+        SubmissionSummaryModel previous = status != null ? status.getEntry(stage) : null;
+        if (previous == null) {
+            throw new BadRequestException(missing);
+        }
+        if (passed && (previous.getGrade() == PENDING || previous.getGrade() == F)) {
+            throw new BadRequestException(previous.getGrade() + " grade on " + stage);
         }
     }
 
@@ -165,17 +254,19 @@ public class SubmissionService {
      * @return ResponseEntity
      * @throws NotFoundException
      */
+    @Transactional
     public ResponseEntity removeSubmission(Authentication authentication, int id) throws NotFoundException {
         try {
-            if (submissionRepository.findById(id) == null) {
+            SubmissionModel submission = submissionRepository.findById(id);
+            if (submission == null) {
                 throw new NotFoundException();
             }
-            StudentModel student = studentRepository.findByEmail(authentication.getName());
-            List<SubmissionModel> submissions = student.getSubmissions();
-            student.getSubmissions().removeIf(submissionObj -> submissionObj.getId() == id);
-            student.setSubmissions(submissions);
-            userService.save(student);
+            submissionRepository.unlinkFromStudents(id);
+            List<String> versionBlobs = submissionVersionService.removeVersions(id);
             submissionRepository.deleteById(id);
+            submissionStatusService.refresh(submission.getUser().getId());
+            releaseBlob(submission.getChecksum(), false);
+            versionBlobs.forEach(hash -> releaseBlob(hash, false));
             return new ResponseEntity<>("Submission successfully removed", HttpStatus.OK);
         } catch (NotFoundException e) {
             throw new NotFoundException("Submission not found");
@@ -190,6 +281,7 @@ public class SubmissionService {
      * @param id submission id
      * @return ResponseEntity
      */
+    @Transactional
     public ResponseEntity updateSubmission(Authentication authentication, int id, @ModelAttribute SubmissionModel submission, @RequestParam("file") MultipartFile file) {
         String fileName = StringUtils.cleanPath(file.getOriginalFilename());
         try {
@@ -202,7 +294,7 @@ public class SubmissionService {
                 throw new FileStorageException("Filename contains invalid path sequence " + fileName);
             }
 
-           StudentModel student = studentRepository.findByEmail(authentication.getName());
+           StudentModel student = studentRepository.findById(TokenPrincipal.idOf(authentication));
                     //userService.getUserByEmail(authentication.getName());
             List<SubmissionModel> submissions = student.getSubmissions();
             if (!submissions.stream().filter(e -> e.getId() == id).findFirst().isPresent()) {
@@ -210,16 +302,26 @@ public class SubmissionService {
             }
 
             SubmissionModel submissionModel = submissionRepository.findById(id);
+            SubmissionVersionModel previous = new SubmissionVersionModel(submissionModel);
             submissionModel.setFileName(fileName);
             submissionModel.setFileType(file.getContentType());
-            submissionModel.setData(file.getBytes());
             submissionModel.setTitle(submission.getTitle());
             submissionModel.setDescription(submission.getDescription());
-            submissionRepository.save(submissionModel);
+            checkFileSize(file.getSize());
+            try (InputStream in = file.getInputStream()) {
+                storeFile(submissionModel, in);
+            }
+            SubmissionVersionModel version = submissionVersionService.archive(previous, submissionModel.getChecksum());
+            if (version.isDelta()) {
+                releaseBlob(version.getStoredHash(), true);
+            }
+            submissionStatusService.refresh(student.getId());
 
             return new ResponseEntity<>("Submission " + submission.getType() + " successfully updated", HttpStatus.OK);
         } catch (IOException ex) {
             throw new FileStorageException("Storing file failed " + fileName, ex);
+        } catch (FileStorageException e) {
+            throw e;
         } catch (MethodNotAllowedException e) {
             throw new MethodNotAllowedException("Not Allowed");
         } catch (NotFoundException e) {
@@ -229,6 +331,123 @@ public class SubmissionService {
         }
     }
 
+    /**
+     * Method which streams an uploaded file into the blob store
+     * and points the submission at the stored content
+     *
+     * @param submission the submission to store the file on
+     * @param content the file content
+     * @throws IOException if the upload cannot be read or written
+     */
+    private void storeFile(SubmissionModel submission, InputStream content) throws IOException {
+        StoredBlob blob = blobStore.put(content, maxUploadBytes);
+        String previous = submission.getChecksum();
+        submission.setChecksum(blob.getHash());
+        submission.setFileSize(blob.getSize());
+        submission.setStorageCodec(blob.getCodec());
+        releaseBlob(blob.getHash(), true);
+        if (previous != null && !previous.equals(blob.getHash())) {
+            releaseBlob(previous, false);
+        }
+    }
+
+    /**
+     * Method which rejects files larger than the upload limit
+     *
+     * @param size the file size in bytes
+     * @throws FileStorageException if the file is too large
+     */
+    public void checkFileSize(long size) throws FileStorageException {
+        if (size > maxUploadBytes) {
+            throw new FileStorageException("File exceeds maximum size of " + maxUploadBytes + " bytes");
+        }
+    }
+
+    /**
+     * Method which periodically removes the blobs a release had to keep
+     * because they had just been reused, once they are no longer referenced
+     */
+    @Scheduled(fixedDelayString = "${submission.storage.gc-interval-ms:3600000}")
+    public void removeUnreferencedBlobs() {
+        List<String> candidates = new ArrayList<>(blobCandidates);
+        blobCandidates.removeAll(candidates);
+        removeIfUnreferenced(candidates, true);
+    }
+
+    /**
+     * Method which periodically walks the whole blob store for blobs no longer
+     * referenced, catching those whose release was lost, e.g. to a restart
+     */
+    @Scheduled(fixedDelayString = "${submission.storage.gc-full-interval-ms:86400000}", initialDelayString = "${submission.storage.gc-full-interval-ms:86400000}")
+    public void reconcileBlobs() {
+        try {
+            removeIfUnreferenced(blobStore.findIdle(blobGraceMillis), false);
+        } catch (IOException e) {
+            LOGGER.warn("Could not sweep blob store", e);
+        }
+    }
+
+    /**
+     * Method which removes the unreferenced blobs of a list, resolving
+     * references with one query per table for each batch of hashes
+     *
+     * @param hashes the content hashes
+     * @param retry whether to keep blobs which could not be removed yet as candidates
+     */
+    private void removeIfUnreferenced(List<String> hashes, boolean retry) {
+        for (int start = 0; start < hashes.size(); start += blobBatchSize) {
+            Set<String> unreferenced = new HashSet<>(hashes.subList(start, Math.min(start + blobBatchSize, hashes.size())));
+            unreferenced.removeAll(submissionRepository.findChecksumsIn(unreferenced));
+            unreferenced.removeAll(submissionVersionService.findReferenced(unreferenced));
+            for (String hash : unreferenced) {
+                try {
+                    if (blobStore.deleteIfIdle(hash, blobGraceMillis)) {
+                        LOGGER.info("Removed unreferenced blob {}", hash);
+                    } else if (retry) {
+                        blobCandidates.add(hash);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete blob {}", hash, e);
+                    if (retry) {
+                        blobCandidates.add(hash);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method which removes a blob once the current transaction completes,
+     * provided no submission or submission version references it any longer.
+     * A blob used within submission.storage.gc-grace-ms is recorded for
+     * the periodic sweep, as an uncommitted upload may be reusing it
+     *
+     * @param hash the content hash
+     * @param onRollbackOnly whether to only release the blob if the transaction rolls back
+     */
+    private void releaseBlob(String hash, boolean onRollbackOnly) {
+        if (hash == null) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                boolean committed = status == STATUS_COMMITTED;
+                if (committed == onRollbackOnly || submissionRepository.countByChecksum(hash) > 0 || submissionVersionService.references(hash)) {
+                    return;
+                }
+                try {
+                    if (!blobStore.deleteIfIdle(hash, blobGraceMillis)) {
+                        blobCandidates.add(hash);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete blob {}", hash, e);
+                    blobCandidates.add(hash);
+                }
+            }
+        });
+    }
+
     /**
      * Method which allows grading on specific submissions
      *
@@ -236,6 +455,7 @@ public class SubmissionService {
      * @param submission the submission data containing new grade
      * @return ResponseEntity the response
      */
+    @Transactional
     public ResponseEntity gradeSubmission(int id, SubmissionModel submission) {
         try {
             if (submissionRepository.findById(id) == null) {
@@ -244,6 +464,7 @@ public class SubmissionService {
             SubmissionModel submissionModel = submissionRepository.findById(id);
             submissionModel.setGrade(submission.getGrade());
             submissionRepository.save(submissionModel);
+            submissionStatusService.refresh(submissionModel.getUser().getId());
             return new ResponseEntity<>("Submission successfully graded", HttpStatus.OK);
         } catch (NotFoundException e) {
             throw new NotFoundException("Submission not found");
@@ -253,38 +474,32 @@ public class SubmissionService {
     }
 
     /**
-     * Method which fetches all student submission,
-     * or shows them as null if non-existent
+     * Method which fetches the submission status of a page of students, ordered
+     * by student id and showing each type of submission as null if non-existent.
+     * Reads the submission_status table, so the cost is bound by the page size
      *
-     * @return List<Object> list of students and each type of submission
+     * @param supervisor optional supervisor id to filter students by
+     * @param grade optional grade, keeps students with a current submission graded so
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<Map<String, Object>> page of students and each type of submission
      */
-    public List<Object> fetchStatusOnStudentSubmissions() {
+    @Transactional(readOnly = true)
+    public CursorPageModel<Map<String, Object>> fetchStatusOnStudentSubmissions(Integer supervisor, Grade grade, String cursor, Integer size) {
+        Pageable request = paginationService.request(size);
+        int after = paginationService.after(cursor);
         try {
-            List<SubmissionModel> submissions = submissionRepository.fetchStatusOnStudentSubmissions();
-            List<Object> list = new ArrayList<>();
-            studentRepository.findAll().forEach(x -> {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Object[] row : submissionStatusRepository.findViewAfter(supervisor, grade, after, request)) {
+                SubmissionStatusModel status = (SubmissionStatusModel) row[1];
                 Map<String, Object> map = new LinkedHashMap<>();
-                map.put("student", x.getId());
-                map.put("DESCRIPTION", null);
-                map.put("PLAN", null);
-                map.put("REPORT", null);
-                map.put("REPORT_FINAL", null);
-                submissions.forEach(e -> {
-                    if (e.getUser().getId().equals(x.getId())) {
-                        if (e.getType().toString().equals("DESCRIPTION")) {
-                            map.put("DESCRIPTION", submissionRepository.findById(e.getId()));
-                        } else if (e.getType().toString().equals("PLAN")) {
-                            map.put("PLAN", submissionRepository.findById(e.getId()));
-                        } else if (e.getType().toString().equals("REPORT")) {
-                            map.put("REPORT", submissionRepository.findById(e.getId()));
-                        } else if (e.getType().toString().equals("REPORT_FINAL")) {
-                            map.put("REPORT_FINAL", submissionRepository.findById(e.getId()));
-                        }
-                    }
-                });
-                list.add(map);
-            });
-            return list;
+                map.put("student", row[0]);
+                for (SubmissionType type : SubmissionType.values()) {
+                    map.put(type.name(), status != null ? status.getEntry(type) : null);
+                }
+                rows.add(map);
+            }
+            return paginationService.page(rows, request, e -> (Integer) e.get("student"));
         } catch (Exception e) {
             throw new InternalErrorException("An error occurred " + e);
         }
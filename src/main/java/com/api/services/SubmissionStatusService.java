@@ -0,0 +1,157 @@
+package com.api.services;
+
+import com.api.models.SubmissionStatusModel;
+import com.api.models.SubmissionSummaryModel;
+import com.api.models.enums.SubmissionType;
+import com.api.repositories.SubmissionRepository;
+import com.api.repositories.SubmissionStatusRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains the submission_status table behind GET /submissions/view.
+ * Each submission change recomputes the row of the affected student from
+ * the submission table, inside the transaction making the change.
+ */
+@Service
+public class SubmissionStatusService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionStatusService.class);
+
+    @Autowired
+    private SubmissionStatusRepository submissionStatusRepository;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    /**
+     * Method which recomputes the status row of a student after one
+     * of their submissions was created, updated, graded or removed
+     *
+     * @param studentId the student id
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refresh(Integer studentId) {
+        SubmissionStatusModel status = submissionStatusRepository.findByIdForUpdate(studentId);
+        if (status == null) {
+            status = new SubmissionStatusModel(studentId);
+        }
+        EnumMap<SubmissionType, SubmissionSummaryModel> current = pivot(submissionRepository.fetchSummariesByStudentIds(Collections.singleton(studentId))).get(studentId);
+        for (SubmissionType type : SubmissionType.values()) {
+            status.setEntry(type, current != null ? current.get(type) : null);
+        }
+        submissionStatusRepository.save(status);
+    }
+
+    /**
+     * Method which rebuilds the whole status table from the submission table
+     *
+     * @return int the number of student rows written
+     */
+    @Transactional
+    public int rebuild() {
+        Map<Integer, EnumMap<SubmissionType, SubmissionSummaryModel>> expected = pivot(submissionRepository.fetchAllSummaries());
+        submissionStatusRepository.deleteAllInBatch();
+        List<SubmissionStatusModel> rows = new ArrayList<>();
+        expected.forEach((studentId, submissions) -> {
+            SubmissionStatusModel status = new SubmissionStatusModel(studentId);
+            submissions.forEach(status::setEntry);
+            rows.add(status);
+        });
+        submissionStatusRepository.saveAll(rows);
+        LOGGER.info("Rebuilt submission status for {} students", rows.size());
+        return rows.size();
+    }
+
+    /**
+     * Method which compares the status table with the submission table
+     *
+     * @return Map<String, Object> the number of rows checked and the
+     * ids of students whose row is missing, stale or orphaned
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> check() {
+        Map<Integer, EnumMap<SubmissionType, SubmissionSummaryModel>> expected = pivot(submissionRepository.fetchAllSummaries());
+        Set<Integer> mismatched = new TreeSet<>();
+        Set<Integer> seen = new HashSet<>();
+        List<SubmissionStatusModel> rows = submissionStatusRepository.findAll();
+        for (SubmissionStatusModel status : rows) {
+            seen.add(status.getStudentId());
+            if (!matches(status, expected.get(status.getStudentId()))) {
+                mismatched.add(status.getStudentId());
+            }
+        }
+        for (Integer studentId : expected.keySet()) {
+            if (!seen.contains(studentId)) {
+                mismatched.add(studentId);
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("checked", rows.size());
+        result.put("mismatched", mismatched);
+        return result;
+    }
+
+    /**
+     * Method which fills the status table on startup when it is empty
+     * but submissions exist, e.g. on a database predating the table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (submissionStatusRepository.count() == 0 && submissionRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Method which groups submission summaries per student and type.
+     * Summaries are ordered by id, so a resubmission of a type
+     * replaces the earlier one
+     *
+     * @param summaries the summaries ordered by submission id
+     * @return Map the submissions of each student by type
+     */
+    private static Map<Integer, EnumMap<SubmissionType, SubmissionSummaryModel>> pivot(List<SubmissionSummaryModel> summaries) {
+        Map<Integer, EnumMap<SubmissionType, SubmissionSummaryModel>> result = new HashMap<>();
+        for (SubmissionSummaryModel summary : summaries) {
+            result.computeIfAbsent(summary.getStudentId(), k -> new EnumMap<>(SubmissionType.class))
+                    .put(summary.getType(), summary);
+        }
+        return result;
+    }
+
+    private static boolean matches(SubmissionStatusModel status, EnumMap<SubmissionType, SubmissionSummaryModel> expected) {
+        for (SubmissionType type : SubmissionType.values()) {
+            SubmissionSummaryModel actual = status.getEntry(type);
+            SubmissionSummaryModel wanted = expected != null ? expected.get(type) : null;
+            if (actual == null || wanted == null) {
+                if (actual != wanted) {
+                    return false;
+                }
+            } else if (!actual.getId().equals(wanted.getId()) || actual.getGrade() != wanted.getGrade()
+                    || !Objects.equals(actual.getTitle(), wanted.getTitle())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,320 @@
+package com.api.services;
+
+import com.api.controllers.exceptions.NotFoundException;
+import com.api.models.SubmissionModel;
+import com.api.models.SubmissionVersionModel;
+import com.api.repositories.SubmissionRepository;
+import com.api.repositories.SubmissionVersionRepository;
+import com.api.storage.BinaryDelta;
+import com.api.storage.BlobStore;
+import com.api.storage.FileContent;
+import com.api.storage.StoredBlob;
+import com.api.storage.StoredContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the earlier versions of updated submissions. The current file
+ * of a submission is always stored in full, and each earlier version is
+ * stored as a reverse delta against the version after it, except every
+ * submission.versions.snapshot-interval-th version which is kept as a
+ * full snapshot. Reading a version therefore applies at most that many
+ * deltas, starting from the nearest newer snapshot or the current file.
+ */
+@Service
+public class SubmissionVersionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionVersionService.class);
+
+    @Autowired
+    private SubmissionVersionRepository submissionVersionRepository;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Value("${submission.versions.snapshot-interval:10}")
+    private int snapshotInterval;
+
+    @Value("${submission.versions.max-delta-ratio:0.5}")
+    private double maxDeltaRatio;
+
+    /**
+     * Method which records the state of a submission before an update
+     *
+     * @param previous the submission as it was before the update
+     * @param currentHash the hash of the file the submission now points at
+     * @return SubmissionVersionModel the saved version
+     * @throws IOException if the files cannot be read or the delta stored
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public SubmissionVersionModel archive(SubmissionVersionModel previous, String currentHash) throws IOException {
+        previous.setVersion(submissionVersionRepository.findLatestVersion(previous.getSubmissionId()) + 1);
+        previous.setReplacedAt(LocalDateTime.now(ZoneOffset.UTC));
+        previous.setStoredHash(previous.getChecksum());
+        previous.setDelta(false);
+        if (previous.getChecksum() != null && currentHash != null && previous.getVersion() % snapshotInterval != 0) {
+            StoredBlob delta = storeDelta(previous.getChecksum(), currentHash, previous.getFileSize());
+            if (delta != null) {
+                previous.setStoredHash(delta.getHash());
+                previous.setDelta(true);
+            }
+        }
+        return submissionVersionRepository.save(previous);
+    }
+
+    /**
+     * Method which lists the versions of a submission, oldest first,
+     * ending with the current version
+     *
+     * @param id the submission id
+     * @return List<SubmissionVersionModel> the versions
+     * @throws NotFoundException if the submission does not exist
+     */
+    @Transactional(readOnly = true)
+    public List<SubmissionVersionModel> getVersions(int id) throws NotFoundException {
+        SubmissionModel submission = submissionRepository.findById(id);
+        if (submission == null) {
+            throw new NotFoundException("Submission not found");
+        }
+        List<SubmissionVersionModel> versions = new ArrayList<>(submissionVersionRepository.findBySubmission(id));
+        SubmissionVersionModel current = new SubmissionVersionModel(submission);
+        current.setVersion(versions.isEmpty() ? 1 : versions.get(versions.size() - 1).getVersion() + 1);
+        versions.add(current);
+        return versions;
+    }
+
+    /**
+     * Method which streams the file of a version of a submission,
+     * reconstructing it from its snapshot and deltas on disk
+     *
+     * @param id the submission id
+     * @param version the version number
+     * @param request the servlet request
+     * @param response the servlet response
+     * @throws NotFoundException if the submission, version or file does not exist
+     * @throws IOException if the file cannot be reconstructed or written
+     */
+    @Transactional(readOnly = true)
+    public void getFile(int id, int version, HttpServletRequest request, HttpServletResponse response) throws NotFoundException, IOException {
+        SubmissionModel submission = submissionRepository.findById(id);
+        if (submission == null) {
+            throw new NotFoundException("Submission not found");
+        }
+        List<SubmissionVersionModel> chain = submissionVersionRepository.findBySubmissionFrom(id, version);
+        if (chain.isEmpty() || chain.get(0).getVersion() != version) {
+            if (chain.isEmpty() && version == submissionVersionRepository.findLatestVersion(id) + 1) {
+                serveCurrent(submission, request, response);
+                return;
+            }
+            throw new NotFoundException("Version not found");
+        }
+        SubmissionVersionModel target = chain.get(0);
+        if (target.getChecksum() == null) {
+            throw new NotFoundException("File not found");
+        }
+        Path work = Files.createTempDirectory("submission-version");
+        try {
+            Path file = reconstruct(chain, submission.getChecksum(), work);
+            StoredContent content = new FileContent(file, Files.size(file), target.getChecksum());
+            // Served through a plain channel, the file is gone before a sendfile could read it
+            fileDownloadService.serve(request, response, new StoredContent() {
+                @Override
+                public long getLength() {
+                    return content.getLength();
+                }
+
+                @Override
+                public String getChecksum() {
+                    return content.getChecksum();
+                }
+
+                @Override
+                public void transferTo(long position, long count, WritableByteChannel channel) throws IOException {
+                    content.transferTo(position, count, channel);
+                }
+            }, target.getFileName(), target.getFileType());
+        } finally {
+            deleteRecursively(work);
+        }
+    }
+
+    /**
+     * Method which removes the versions of a submission
+     *
+     * @param id the submission id
+     * @return List<String> the blobs the versions referenced
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<String> removeVersions(int id) {
+        List<String> blobs = submissionVersionRepository.findBlobsBySubmission(id);
+        submissionVersionRepository.deleteBySubmission(id);
+        return blobs;
+    }
+
+    /**
+     * Method which checks whether any version references a blob
+     *
+     * @param hash the content hash
+     * @return boolean whether the blob is in use
+     */
+    public boolean references(String hash) {
+        return submissionVersionRepository.countByStoredHash(hash) > 0;
+    }
+
+    /**
+     * Method which finds which of a set of blobs any version references
+     *
+     * @param hashes the content hashes
+     * @return List<String> the hashes in use
+     */
+    public List<String> findReferenced(Collection<String> hashes) {
+        return submissionVersionRepository.findStoredHashesIn(hashes);
+    }
+
+    private void serveCurrent(SubmissionModel submission, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StoredContent content = submission.getChecksum() == null ? null : blobStore.get(submission.getChecksum(), submission.getStorageCodec());
+        if (content == null) {
+            throw new NotFoundException("File not found");
+        }
+        fileDownloadService.serve(request, response, content, submission.getFileName(), submission.getFileType());
+    }
+
+    /**
+     * Method which stores the delta turning the current file back into the previous one
+     *
+     * @param previousHash the hash of the previous file
+     * @param currentHash the hash of the current file
+     * @param previousSize the size of the previous file, may be null
+     * @return StoredBlob the stored delta, or null if a full snapshot is smaller or safer
+     * @throws IOException if the files cannot be read or the delta stored
+     */
+    private StoredBlob storeDelta(String previousHash, String currentHash, Long previousSize) throws IOException {
+        StoredContent previous = blobStore.get(previousHash);
+        StoredContent current = blobStore.get(currentHash);
+        if (previous == null || current == null || previous.getLength() > Integer.MAX_VALUE || current.getLength() > Integer.MAX_VALUE) {
+            return null;
+        }
+        Path work = Files.createTempDirectory("submission-version");
+        try {
+            Path delta = work.resolve("delta");
+            try (OutputStream out = Files.newOutputStream(delta)) {
+                BinaryDelta.encode(materialize(current, work), materialize(previous, work), out);
+            }
+            long size = previousSize != null ? previousSize : previous.getLength();
+            if (Files.size(delta) > size * maxDeltaRatio) {
+                return null;
+            }
+            try (InputStream in = Files.newInputStream(delta)) {
+                return blobStore.put(in, Long.MAX_VALUE);
+            }
+        } finally {
+            deleteRecursively(work);
+        }
+    }
+
+    /**
+     * Method which rebuilds the file of the first version of a chain
+     *
+     * @param chain the versions from the wanted one upwards, ordered by version
+     * @param currentHash the hash of the current file of the submission
+     * @param work the directory to write intermediate files to
+     * @return Path the reconstructed file
+     * @throws IOException if a blob is missing or cannot be read
+     */
+    private Path reconstruct(List<SubmissionVersionModel> chain, String currentHash, Path work) throws IOException {
+        int top = 0;
+        while (top < chain.size() && chain.get(top).isDelta()) {
+            top++;
+        }
+        Path file = materialize(load(top < chain.size() ? chain.get(top).getStoredHash() : currentHash), work);
+        for (int i = Math.min(top, chain.size()) - 1; i >= 0; i--) {
+            Path delta = materialize(load(chain.get(i).getStoredHash()), work);
+            Path next = Files.createTempFile(work, "version", ".tmp");
+            try (InputStream in = Files.newInputStream(delta);
+                 FileChannel out = FileChannel.open(next, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                BinaryDelta.apply(file, in, out);
+            }
+            file = next;
+        }
+        return file;
+    }
+
+    private StoredContent load(String hash) throws IOException {
+        StoredContent content = hash == null ? null : blobStore.get(hash);
+        if (content == null) {
+            LOGGER.warn("Missing blob {} in version chain", hash);
+            throw new NotFoundException("File not found");
+        }
+        return content;
+    }
+
+    /**
+     * Method which returns a file holding stored content, copying
+     * it into the work directory unless it is stored as is
+     *
+     * @param content the stored content
+     * @param work the directory to copy to
+     * @return Path the file
+     * @throws IOException if the content cannot be copied
+     */
+    private static Path materialize(StoredContent content, Path work) throws IOException {
+        if (content instanceof FileContent) {
+            return ((FileContent) content).getPath();
+        }
+        Path file = Files.createTempFile(work, "blob", ".tmp");
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            content.transferTo(0, content.getLength(), out);
+        }
+        return file;
+    }
+
+    private static void deleteRecursively(Path root) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Could not remove work directory {}", root, e);
+        }
+    }
+}
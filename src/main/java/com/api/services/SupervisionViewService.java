@@ -0,0 +1,152 @@
+package com.api.services;
+
+import com.api.models.CursorPageModel;
+import com.api.models.SubmissionSummaryModel;
+import com.api.repositories.SubmissionRepository;
+import com.api.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the supervisor and supervision listings from scalar projections
+ * instead of serializing entities, whose lazy associations would each be
+ * loaded with a query of their own. A page takes a fixed number of
+ * queries however many students it covers.
+ */
+@Service
+public class SupervisionViewService {
+
+    private static final String[] SUBMISSION_REFERENCES = {"requestedSubmission", "confirmedReaderSubmission", "setOpponentSubmission"};
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private PaginationService paginationService;
+
+    /**
+     * Method which returns a page of supervisors with their students
+     * and the students requesting their supervision, in three queries
+     * plus one for the submissions those students refer to
+     *
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<Map<String, Object>> page of supervisors
+     */
+    @Transactional(readOnly = true)
+    public CursorPageModel<Map<String, Object>> getSupervisors(String cursor, Integer size) {
+        Pageable request = paginationService.request(size);
+        CursorPageModel<Map<String, Object>> page = paginationService.page(
+                userRepository.findSupervisorsAfter(paginationService.after(cursor), request), request, e -> (Integer) e.get("id"));
+        if (page.getItems().isEmpty()) {
+            return page;
+        }
+        Map<Integer, Map<String, Object>> supervisors = new HashMap<>();
+        for (Map<String, Object> supervisor : page.getItems()) {
+            supervisor.put("students", new ArrayList<>());
+            supervisor.put("studentsRequestingSupervision", new ArrayList<>());
+            supervisors.put((Integer) supervisor.get("id"), supervisor);
+        }
+        for (Map<String, Object> student : userRepository.findStudentsBySupervisors(supervisors.keySet())) {
+            addTo(supervisors.get((Integer) student.remove("supervisor")), "students", new LinkedHashMap<>(student));
+        }
+        List<Map<String, Object>> requesting = new ArrayList<>();
+        for (Map<String, Object> student : userRepository.findStudentsRequestingSupervisors(supervisors.keySet())) {
+            Map<String, Object> entry = new LinkedHashMap<>(student);
+            addTo(supervisors.get((Integer) entry.remove("requestedSupervisor")), "studentsRequestingSupervision", entry);
+            requesting.add(entry);
+        }
+        resolveSubmissions(requesting);
+        return page;
+    }
+
+    /**
+     * Method which returns a page of students with their supervisor,
+     * requested supervisor and referenced submissions in two queries
+     *
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<Map<String, Object>> page of students
+     */
+    @Transactional(readOnly = true)
+    public CursorPageModel<Map<String, Object>> getStudentsWithRespectiveSupervisor(String cursor, Integer size) {
+        Pageable request = paginationService.request(size);
+        CursorPageModel<Map<String, Object>> page = paginationService.page(
+                userRepository.findStudentsWithRespectiveSupervisorAfter(paginationService.after(cursor), request), request, e -> (Integer) e.get("id"));
+        List<Map<String, Object>> students = new ArrayList<>(page.getItems().size());
+        for (Map<String, Object> row : page.getItems()) {
+            Map<String, Object> student = new LinkedHashMap<>();
+            student.put("id", row.get("id"));
+            student.put("name", row.get("name"));
+            student.put("surname", row.get("surname"));
+            student.put("email", row.get("email"));
+            student.put("supervisor", person(row, "supervisor"));
+            student.put("requestedSupervisor", person(row, "requestedSupervisor"));
+            for (String reference : SUBMISSION_REFERENCES) {
+                student.put(reference, row.get(reference));
+            }
+            students.add(student);
+        }
+        resolveSubmissions(students);
+        return new CursorPageModel<>(students, page.getNext());
+    }
+
+    /**
+     * Method which replaces the submission ids a student refers
+     * to with their summaries, loaded in a single query
+     *
+     * @param students the students, holding submission ids
+     */
+    private void resolveSubmissions(List<Map<String, Object>> students) {
+        Set<Integer> ids = new HashSet<>();
+        for (Map<String, Object> student : students) {
+            for (String reference : SUBMISSION_REFERENCES) {
+                if (student.get(reference) != null) {
+                    ids.add((Integer) student.get(reference));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Integer, SubmissionSummaryModel> summaries = new HashMap<>();
+        submissionRepository.fetchSummariesByIds(ids).forEach(e -> summaries.put(e.getId(), e));
+        for (Map<String, Object> student : students) {
+            for (String reference : SUBMISSION_REFERENCES) {
+                if (student.get(reference) != null) {
+                    student.put(reference, summaries.get(student.get(reference)));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addTo(Map<String, Object> supervisor, String list, Map<String, Object> student) {
+        ((List<Map<String, Object>>) supervisor.get(list)).add(student);
+    }
+
+    private static Map<String, Object> person(Map<String, Object> row, String prefix) {
+        if (row.get(prefix + "Id") == null) {
+            return null;
+        }
+        Map<String, Object> person = new LinkedHashMap<>();
+        person.put("id", row.get(prefix + "Id"));
+        person.put("name", row.get(prefix + "Name"));
+        person.put("surname", row.get(prefix + "Surname"));
+        person.put("email", row.get(prefix + "Email"));
+        return person;
+    }
+}
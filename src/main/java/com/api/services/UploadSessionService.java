@@ -0,0 +1,318 @@
+package com.api.services;
+
+import com.api.config.security.TokenPrincipal;
+import com.api.controllers.exceptions.BadRequestException;
+import com.api.controllers.exceptions.ConflictException;
+import com.api.controllers.exceptions.FileStorageException;
+import com.api.controllers.exceptions.MethodNotAllowedException;
+import com.api.controllers.exceptions.NotFoundException;
+import com.api.models.SubmissionModel;
+import com.api.models.UploadSessionModel;
+import com.api.repositories.UploadSessionRepository;
+import com.api.storage.UploadStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static com.api.models.enums.Grade.PENDING;
+
+@Service
+public class UploadSessionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UploadSessionService.class);
+
+    public static final String CHUNK_CHECKSUM_HEADER = "X-Chunk-Checksum";
+    public static final String FILE_CHECKSUM_HEADER = "X-Checksum";
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private SubmissionService submissionService;
+
+    @Value("${submission.upload.spool-root:data/uploads}")
+    private String spoolRoot;
+
+    @Value("${submission.upload.max-bytes:209715200}")
+    private long maxUploadBytes;
+
+    @Value("${submission.upload.max-chunk-bytes:8388608}")
+    private long maxChunkBytes;
+
+    @Value("${submission.upload.session-ttl-minutes:1440}")
+    private long sessionTtlMinutes;
+
+    private Path spool;
+
+    @PostConstruct
+    public void init() throws IOException {
+        spool = Paths.get(spoolRoot).toAbsolutePath();
+        Files.createDirectories(spool);
+    }
+
+    /**
+     * Method which opens an upload session for a new submission,
+     * checking up front that the student may submit it
+     *
+     * @param authentication user authentication
+     * @param request the submission fields, file name and optional total size
+     * @return UploadSessionModel the new session
+     */
+    @Transactional
+    public UploadSessionModel createSession(Authentication authentication, UploadSessionModel request) {
+        if (request.getType() == null || request.getTitle() == null || request.getDescription() == null || request.getFileName() == null) {
+            throw new BadRequestException("Missing fields");
+        }
+        String fileName = StringUtils.cleanPath(request.getFileName());
+        if (fileName.contains("..")) {
+            throw new FileStorageException("Filename contains invalid path sequence " + fileName);
+        }
+        if (request.getTotalSize() != null) {
+            submissionService.checkFileSize(request.getTotalSize());
+        }
+        int studentId = TokenPrincipal.idOf(authentication);
+        submissionService.checkAdmission(studentId, request.getType());
+
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        request.setId(UUID.randomUUID().toString().replace("-", ""));
+        request.setUserId(studentId);
+        request.setFileName(fileName);
+        request.setReceivedBytes(0);
+        request.setNextChunk(0);
+        request.setCreatedAt(now);
+        request.setUpdatedAt(now);
+        return uploadSessionRepository.save(request);
+    }
+
+    /**
+     * Method which returns the state of an upload session,
+     * so a client can resume from the received offset
+     *
+     * @param authentication user authentication
+     * @param id the session id
+     * @return UploadSessionModel the session
+     */
+    @Transactional(readOnly = true)
+    public UploadSessionModel getSession(Authentication authentication, String id) {
+        return findOwnedSession(authentication, id, false);
+    }
+
+    /**
+     * Method which appends a numbered chunk to the spool file of a session.
+     * Chunks must arrive in order; a chunk which was already received is
+     * acknowledged without being written again, provided it is the same
+     * chunk as the one recorded
+     *
+     * @param authentication user authentication
+     * @param id the session id
+     * @param index the zero based chunk number
+     * @param checksum the hex encoded SHA-256 of the chunk
+     * @param body the chunk content
+     * @return UploadSessionModel the updated session
+     * @throws IOException if the chunk cannot be read or spooled
+     * @throws ConflictException if a re-sent chunk differs from the one received
+     */
+    @Transactional
+    public UploadSessionModel putChunk(Authentication authentication, String id, int index, String checksum, InputStream body) throws IOException {
+        UploadSessionModel session = findOwnedSession(authentication, id, true);
+        if (index > session.getNextChunk()) {
+            throw new BadRequestException("Expected chunk " + session.getNextChunk());
+        }
+        if (checksum == null) {
+            throw new BadRequestException("Missing " + CHUNK_CHECKSUM_HEADER + " header");
+        }
+        if (index < session.getNextChunk()) {
+            String received = session.getChunkChecksum(index);
+            if (received == null || !received.equalsIgnoreCase(checksum.trim())) {
+                throw new ConflictException("Chunk " + index + " was already received with different content");
+            }
+            UploadStream chunk = new UploadStream(body, maxChunkBytes);
+            byte[] buffer = new byte[UploadStream.CHUNK_SIZE];
+            while (chunk.read(buffer, 0, buffer.length) != -1) {
+                // Only the checksum of the re-sent bytes is needed
+            }
+            if (!chunk.getChecksum().equalsIgnoreCase(received)) {
+                throw new BadRequestException("Checksum mismatch on chunk " + index);
+            }
+            return session;
+        }
+
+        long offset = session.getReceivedBytes();
+        long remaining = (session.getTotalSize() != null ? session.getTotalSize() : maxUploadBytes) - offset;
+        UploadStream chunk = new UploadStream(body, Math.min(maxChunkBytes, remaining));
+        try (FileChannel channel = FileChannel.open(spoolFile(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Drop whatever a previously failed attempt at this chunk left behind
+            channel.truncate(offset);
+            channel.position(offset);
+            byte[] buffer = new byte[UploadStream.CHUNK_SIZE];
+            int n;
+            while ((n = chunk.read(buffer, 0, buffer.length)) != -1) {
+                ByteBuffer wrapped = ByteBuffer.wrap(buffer, 0, n);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            }
+            if (chunk.getByteCount() == 0) {
+                throw new BadRequestException("Empty chunk");
+            }
+            if (!chunk.getChecksum().equalsIgnoreCase(checksum.trim())) {
+                channel.truncate(offset);
+                throw new BadRequestException("Checksum mismatch on chunk " + index);
+            }
+            channel.force(false);
+        }
+        session.setReceivedBytes(offset + chunk.getByteCount());
+        session.setNextChunk(index + 1);
+        session.addChunkChecksum(chunk.getChecksum());
+        session.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
+        return session;
+    }
+
+    /**
+     * Method which turns a completed upload session into a submission,
+     * applying the same rules as a direct upload
+     *
+     * @param authentication user authentication
+     * @param id the session id
+     * @param checksum optional hex encoded SHA-256 of the whole file
+     * @return ResponseEntity the response
+     * @throws IOException if the spooled file cannot be read or stored
+     */
+    @Transactional
+    public ResponseEntity commit(Authentication authentication, String id, String checksum) throws IOException {
+        UploadSessionModel session = findOwnedSession(authentication, id, true);
+        if (session.getNextChunk() == 0) {
+            throw new BadRequestException("No chunks received");
+        }
+        if (session.getTotalSize() != null && session.getReceivedBytes() != session.getTotalSize()) {
+            throw new BadRequestException("Upload incomplete, received " + session.getReceivedBytes() + " of " + session.getTotalSize() + " bytes");
+        }
+        if (checksum != null && !checksum.trim().equalsIgnoreCase(checksumOf(spoolFile(id)))) {
+            throw new BadRequestException("Checksum mismatch on file");
+        }
+        SubmissionModel submission = new SubmissionModel();
+        submission.setTitle(session.getTitle());
+        submission.setDescription(session.getDescription());
+        submission.setType(session.getType());
+        submission.setGrade(PENDING);
+
+        ResponseEntity response;
+        try (InputStream in = Files.newInputStream(spoolFile(id))) {
+            response = submissionService.createSubmission(TokenPrincipal.idOf(authentication), submission, session.getFileName(), session.getFileType(), in);
+        }
+        if (response.getStatusCode() != HttpStatus.OK) {
+            return response;
+        }
+        removeSession(session);
+        return response;
+    }
+
+    /**
+     * Method which abandons an upload session
+     *
+     * @param authentication user authentication
+     * @param id the session id
+     * @return ResponseEntity the response
+     */
+    @Transactional
+    public ResponseEntity abort(Authentication authentication, String id) {
+        removeSession(findOwnedSession(authentication, id, true));
+        return new ResponseEntity<>("Upload session removed", HttpStatus.OK);
+    }
+
+    /**
+     * Method which periodically removes sessions which have not received
+     * a chunk within the session TTL, together with stray spool files
+     */
+    @Scheduled(fixedDelayString = "${submission.upload.session-sweep-ms:600000}")
+    public void removeAbandonedSessions() {
+        LocalDateTime cutoff = LocalDateTime.now(ZoneOffset.UTC).minusMinutes(sessionTtlMinutes);
+        for (String id : uploadSessionRepository.findIdsUpdatedBefore(cutoff)) {
+            // A session committed, aborted or resumed since it was listed is left alone
+            if (uploadSessionRepository.deleteIfUpdatedBefore(id, cutoff) > 0) {
+                deleteSpoolFile(id);
+            }
+        }
+        long cutoffMillis = System.currentTimeMillis() - sessionTtlMinutes * 60_000L;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spool, "*.part")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoffMillis) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not sweep upload spool {}", spool, e);
+        }
+    }
+
+    private static String checksumOf(Path file) throws IOException {
+        try (UploadStream in = new UploadStream(Files.newInputStream(file), Long.MAX_VALUE)) {
+            byte[] buffer = new byte[UploadStream.CHUNK_SIZE];
+            while (in.read(buffer, 0, buffer.length) != -1) {
+                // Only the checksum is needed
+            }
+            return in.getChecksum();
+        }
+    }
+
+    private UploadSessionModel findOwnedSession(Authentication authentication, String id, boolean forUpdate) {
+        UploadSessionModel session = forUpdate ? uploadSessionRepository.findByIdForUpdate(id) : uploadSessionRepository.findById(id).orElse(null);
+        if (session == null) {
+            throw new NotFoundException("Upload session not found");
+        }
+        if (session.getUserId() != TokenPrincipal.idOf(authentication)) {
+            throw new MethodNotAllowedException("Not Allowed");
+        }
+        return session;
+    }
+
+    private void removeSession(UploadSessionModel session) {
+        String id = session.getId();
+        uploadSessionRepository.delete(session);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                deleteSpoolFile(id);
+            }
+        });
+    }
+
+    private void deleteSpoolFile(String id) {
+        try {
+            Files.deleteIfExists(spoolFile(id));
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete spool file for upload session {}", id, e);
+        }
+    }
+
+    private Path spoolFile(String id) {
+        if (!id.matches("[0-9a-f]{32}")) {
+            throw new NotFoundException("Upload session not found");
+        }
+        return spool.resolve(id + ".part");
+    }
+}
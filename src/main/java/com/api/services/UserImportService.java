@@ -0,0 +1,425 @@
+package com.api.services;
+
+import com.api.config.security.BoundedPasswordEncoder;
+import com.api.controllers.exceptions.BadRequestException;
+import com.api.controllers.exceptions.ServiceUnavailableException;
+import com.api.models.UserImportResultModel;
+import com.api.models.UserImportRowModel;
+import com.api.models.UserModel;
+import com.api.models.enums.Role;
+import com.api.repositories.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Creates user accounts in bulk from CSV or newline-delimited JSON.
+ * Rows are validated as they are read and collected into batches;
+ * each batch has its passwords hashed in parallel on the password
+ * hashing pool, takes its ids from the pooled user id generator and
+ * is inserted with JDBC batching in one transaction.
+ * Every row gets an entry in the returned report, with either the
+ * new user id or the reason it was rejected. If the hashing pool is
+ * saturated the import stops after the batch it refused, and the
+ * report ends with an entry saying the remaining rows were not read.
+ */
+@Service
+public class UserImportService {
+
+    public static final String CSV = "text/csv";
+
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final int MAX_LENGTH = 255;
+    private static final List<String> REQUIRED_COLUMNS = Arrays.asList("name", "surname", "email", "password");
+
+    private static final String INSERT_USER = "INSERT INTO user (id, Account_type, name, surname, email, password, token_version) VALUES (?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_USER_ROLE = "INSERT INTO user_role (USER_ID, ROLE_ID) VALUES (?, ?)";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${user-import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${user-import.max-rows:10000}")
+    private int maxRows;
+
+    /**
+     * Method which imports users from CSV. The first line names the
+     * columns: name, surname, email and password are required, type
+     * (user, student, supervisor or coordinator) and roles (separated
+     * by ;) are optional
+     *
+     * @param in the CSV content
+     * @return List<UserImportResultModel> the result of each row
+     * @throws IOException if the content cannot be read
+     */
+    public List<UserImportResultModel> importCsv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            throw new BadRequestException("Empty import");
+        }
+        List<String> columns = new ArrayList<>();
+        try {
+            for (String column : parseCsvLine(header.replace("\uFEFF", ""))) {
+                columns.add(column.trim().toLowerCase(Locale.ROOT));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid header, " + e.getMessage());
+        }
+        if (!columns.containsAll(REQUIRED_COLUMNS)) {
+            throw new BadRequestException("Missing columns, expected " + String.join(",", REQUIRED_COLUMNS) + "[,type][,roles]");
+        }
+        return importRows(reader, line -> {
+            List<String> values = parseCsvLine(line);
+            UserImportRowModel row = new UserImportRowModel();
+            row.setName(column(values, columns, "name"));
+            row.setSurname(column(values, columns, "surname"));
+            row.setEmail(column(values, columns, "email"));
+            row.setPassword(column(values, columns, "password"));
+            row.setType(column(values, columns, "type"));
+            String roles = column(values, columns, "roles");
+            if (roles != null && !roles.trim().isEmpty()) {
+                row.setRoles(Arrays.asList(roles.split(";")));
+            }
+            return row;
+        });
+    }
+
+    /**
+     * Method which imports users from newline-delimited JSON, one
+     * object with the fields of the CSV columns per line
+     *
+     * @param in the NDJSON content
+     * @return List<UserImportResultModel> the result of each row
+     * @throws IOException if the content cannot be read
+     */
+    public List<UserImportResultModel> importNdjson(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return importRows(reader, line -> {
+            try {
+                return objectMapper.readValue(line, UserImportRowModel.class);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Malformed JSON");
+            }
+        });
+    }
+
+    private List<UserImportResultModel> importRows(BufferedReader reader, RowParser parser) throws IOException {
+        List<UserImportResultModel> results = new ArrayList<>();
+        List<PendingUser> batch = new ArrayList<>(batchSize);
+        Set<String> seen = new HashSet<>();
+        int number = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            UserImportResultModel result = new UserImportResultModel(++number, null);
+            results.add(result);
+            if (number > maxRows) {
+                result.setError("Import is limited to " + maxRows + " rows, remaining rows were not read");
+                break;
+            }
+            try {
+                batch.add(validate(parser.parse(line), result, seen));
+            } catch (IllegalArgumentException e) {
+                result.setError(e.getMessage());
+                continue;
+            }
+            if (batch.size() == batchSize) {
+                boolean inserted = insert(batch);
+                batch.clear();
+                if (!inserted) {
+                    stop(reader, results, number);
+                    return results;
+                }
+            }
+        }
+        if (!insert(batch)) {
+            stop(reader, results, number);
+        }
+        return results;
+    }
+
+    /**
+     * Method which ends the report of an import stopped before its last row,
+     * noting that the rows after the last one reported were not read
+     *
+     * @param reader the remaining content
+     * @param results the report
+     * @param number the number of the last row reported
+     * @throws IOException if the content cannot be read
+     */
+    private static void stop(BufferedReader reader, List<UserImportResultModel> results, int number) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                UserImportResultModel result = new UserImportResultModel(number + 1, null);
+                result.setError("Import stopped, remaining rows were not read");
+                results.add(result);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Method which checks a row and resolves its account type and roles
+     *
+     * @param row the parsed row
+     * @param result the report entry of the row
+     * @param seen the lower cased emails of earlier rows
+     * @return PendingUser the row ready to insert
+     * @throws IllegalArgumentException if the row is invalid
+     */
+    private PendingUser validate(UserImportRowModel row, UserImportResultModel result, Set<String> seen) {
+        result.setEmail(row.getEmail());
+        String name = required(row.getName(), "name");
+        String surname = required(row.getSurname(), "surname");
+        String email = required(row.getEmail(), "email");
+        String password = required(row.getPassword(), "password");
+        if (!EMAIL.matcher(email).matches()) {
+            throw new IllegalArgumentException("Invalid email");
+        }
+        Class<? extends UserModel> type = UserModel.class;
+        if (row.getType() != null && !row.getType().trim().isEmpty() && !row.getType().trim().equals("user")) {
+            type = UserService.ACCOUNT_TYPES.get(row.getType().trim());
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown account type " + row.getType());
+            }
+        }
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        if (row.getRoles() != null) {
+            for (String role : row.getRoles()) {
+                try {
+                    roles.add(Role.valueOf(role.trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown role " + role);
+                }
+            }
+        }
+        if (!seen.add(email.toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Duplicate email in import");
+        }
+        return new PendingUser(result, UserService.accountType(type), name, surname, email, password, roleRegistry.ids(roles));
+    }
+
+    /**
+     * Method which inserts a batch of validated rows, skipping
+     * those whose email is already registered
+     *
+     * @param batch the rows
+     * @return boolean false if the hashing pool refused the batch
+     */
+    private boolean insert(List<PendingUser> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        List<String> emails = new ArrayList<>(batch.size());
+        batch.forEach(e -> emails.add(e.email));
+        Set<String> registered = new HashSet<>();
+        userRepository.findEmailsIn(emails).forEach(e -> registered.add(e.toLowerCase(Locale.ROOT)));
+
+        List<PendingUser> users = new ArrayList<>(batch.size());
+        List<String> passwords = new ArrayList<>(batch.size());
+        for (PendingUser user : batch) {
+            if (registered.contains(user.email.toLowerCase(Locale.ROOT))) {
+                user.result.setError("Email already registered");
+            } else {
+                users.add(user);
+                passwords.add(user.password);
+            }
+        }
+        if (users.isEmpty()) {
+            return true;
+        }
+        List<String> hashes;
+        try {
+            hashes = passwordEncoder.encodeAll(passwords);
+        } catch (ServiceUnavailableException e) {
+            for (PendingUser user : users) {
+                user.result.setError("Password hashing is busy, retry this row in " + e.getRetryAfterSeconds() + " seconds");
+            }
+            return false;
+        }
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                for (PendingUser user : users) {
+                    user.result.setId(nextUserId());
+                }
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_USER)) {
+                    for (int i = 0; i < users.size(); i++) {
+                        PendingUser user = users.get(i);
+                        statement.setInt(1, user.result.getId());
+                        statement.setString(2, user.type);
+                        statement.setString(3, user.name);
+                        statement.setString(4, user.surname);
+                        statement.setString(5, user.email);
+                        statement.setString(6, hashes.get(i));
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_USER_ROLE)) {
+                    for (PendingUser user : users) {
+                        for (Integer roleId : user.roleIds) {
+                            statement.setInt(1, user.result.getId());
+                            statement.setInt(2, roleId);
+                            statement.addBatch();
+                        }
+                    }
+                    statement.executeBatch();
+                }
+                return null;
+            }));
+        } catch (DataAccessException e) {
+            rejectBatch(users, e.getMostSpecificCause().getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Method which takes the next user id from the same pooled
+     * generator Hibernate uses, mostly without a database round trip
+     *
+     * @return Integer the user id
+     */
+    private Integer nextUserId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        return (Integer) session.getFactory().getMetamodel().entityPersister(UserModel.class).getIdentifierGenerator().generate(session, null);
+    }
+
+    /**
+     * Method which reports every row of a batch which was rolled back
+     *
+     * @param users the rows of the batch
+     * @param reason the cause of the failure
+     */
+    private static void rejectBatch(List<PendingUser> users, String reason) {
+        for (PendingUser user : users) {
+            user.result.setId(null);
+            user.result.setError("Could not be inserted with its batch: " + reason);
+        }
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing " + field);
+        }
+        if (value.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Field " + field + " is longer than " + MAX_LENGTH + " characters");
+        }
+        return value.trim();
+    }
+
+    private static String column(List<String> values, List<String> columns, String name) {
+        int index = columns.indexOf(name);
+        return index >= 0 && index < values.size() ? values.get(index) : null;
+    }
+
+    /**
+     * Method which splits a CSV line into fields, honouring quoted
+     * fields with doubled quotes. Fields cannot span lines
+     *
+     * @param line the line
+     * @return List<String> the fields
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private interface RowParser {
+        UserImportRowModel parse(String line);
+    }
+
+    private static class PendingUser {
+
+        private final UserImportResultModel result;
+        private final String type;
+        private final String name;
+        private final String surname;
+        private final String email;
+        private final String password;
+        private final Set<Integer> roleIds;
+
+        PendingUser(UserImportResultModel result, String type, String name, String surname, String email, String password, Set<Integer> roleIds) {
+            this.result = result;
+            this.type = type;
+            this.name = name;
+            this.surname = surname;
+            this.email = email;
+            this.password = password;
+            this.roleIds = roleIds;
+        }
+    }
+}
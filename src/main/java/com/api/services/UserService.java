@@ -1,35 +1,48 @@
 package com.api.services;
 
+import com.api.config.security.TokenPrincipal;
+import com.api.config.security.TokenVersionCache;
 import com.api.controllers.exceptions.BadRequestException;
 import com.api.controllers.exceptions.InternalErrorException;
 import com.api.controllers.exceptions.NotFoundException;
+import com.api.controllers.exceptions.ServiceUnavailableException;
 import com.api.models.*;
 import com.api.models.enums.Role;
 import com.api.repositories.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.AuthorityUtils;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseBody;
+import javax.persistence.DiscriminatorValue;
 import javax.validation.ConstraintViolationException;
 import java.util.*;
 
 @Service
 public class UserService implements UserDetailsService {
 
+    static final Map<String, Class<? extends UserModel>> ACCOUNT_TYPES = new HashMap<>();
+
+    static {
+        ACCOUNT_TYPES.put("student", StudentModel.class);
+        ACCOUNT_TYPES.put("supervisor", SupervisorModel.class);
+        ACCOUNT_TYPES.put("coordinator", CoordinatorModel.class);
+    }
+
     @Autowired
     UserRepository userRepository;
 
     @Autowired
-    RoleRepository roleRepository;
+    RoleRegistry roleRegistry;
 
     @Autowired
     SupervisorRepository supervisorRepository;
@@ -38,15 +51,27 @@ public class UserService implements UserDetailsService {
     StudentRepository studentRepository;
 
     @Autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PaginationService paginationService;
+
+    @Autowired
+    private SupervisionViewService supervisionViewService;
+
+    @Autowired
+    private TokenVersionCache tokenVersionCache;
 
     /**
-     * Method which finds all users
+     * Method which finds a page of users, ordered by id
      *
-     * @return Iterable<UserModel> collection of all users
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<Map<String, Object>> page of users
      */
-    public List<UserModel> findAll() {
-        return userRepository.findAllUsers();
+    public CursorPageModel<Map<String, Object>> findAll(String cursor, Integer size) {
+        Pageable request = paginationService.request(size);
+        return paginationService.page(userRepository.findUsersAfter(paginationService.after(cursor), request), request, e -> (Integer) e.get("id"));
     }
 
     /**
@@ -66,10 +91,12 @@ public class UserService implements UserDetailsService {
      */
     public void deleteById(int id) throws NotFoundException {
         try {
-            if (userRepository.findById(id) == null) {
+            UserModel user = userRepository.findById(id);
+            if (user == null) {
                 throw new NotFoundException();
             }
             userRepository.deleteById(id);
+            tokenVersionCache.invalidate(id);
         } catch (NotFoundException e) {
             throw new NotFoundException("User not found");
         } catch (Exception e) {
@@ -101,12 +128,14 @@ public class UserService implements UserDetailsService {
      */
     public @ResponseBody ResponseEntity createUser(@RequestBody UserModel user) throws BadRequestException {
         try {
-            user.setPassword(bCryptPasswordEncoder.encode(user.getPassword()));
+            user.setPassword(passwordEncoder.encode(user.getPassword()));
             userRepository.save(user);
             return new ResponseEntity<>("User successfully created", HttpStatus.OK);
         } catch (ConstraintViolationException e) {
             throw new BadRequestException("Missing fields");
-        }  catch (Exception e) {
+        } catch (ServiceUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
             throw new InternalErrorException("An error occurred " + e);
         }
     }
@@ -120,10 +149,12 @@ public class UserService implements UserDetailsService {
      */
     public @ResponseBody ResponseEntity deleteUser(int id) throws NotFoundException {
         try {
-            if (userRepository.findById(id) == null) {
+            UserModel user = userRepository.findById(id);
+            if (user == null) {
                 throw new NotFoundException();
             }
             userRepository.deleteById(id);
+            tokenVersionCache.invalidate(id);
             return new ResponseEntity<>("User successfully removed", HttpStatus.OK);
         } catch (NotFoundException e) {
             throw new NotFoundException("User not found");
@@ -152,38 +183,44 @@ public class UserService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         UserModel userModel = getUserByEmail(email);
-        return new User(userModel.getEmail(), userModel.getPassword(), getAuthorities(userModel));
+        if (userModel == null) {
+            throw new UsernameNotFoundException(email);
+        }
+        return new TokenPrincipal(userModel.getId(), userModel.getEmail(), userModel.getPassword(), roleRegistry.rolesOf(userModel), userModel.getTokenVersion());
     }
 
     /**
-     * Method which helps the authentication process
-     * by fetching the authorities for a user
+     * Method which returns a page of users with supervisor role
      *
-     * @param user the user in question
-     * @return Collection<? extends GrantedAuthority> the generic collection with all user roles
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<Map<String, Object>> page of supervisors
      */
-    private static Collection<? extends GrantedAuthority> getAuthorities(UserModel user) {
-        String[] userRoles = user.getRoles().stream().map((role) -> role.getRole().name()).toArray(String[]::new);
-        Collection<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList(userRoles);
-        return authorities;
+    public CursorPageModel<Map<String, Object>> getAllSupervisors(String cursor, Integer size) {
+        return supervisionViewService.getSupervisors(cursor, size);
     }
 
     /**
-     * Method which returns all users with supervisor role
+     * Method which returns a page of users with student role
      *
-     * @return Iterable<UserModel> collection of all supervisors
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<Map<String, Object>> page of students
      */
-    public @ResponseBody Iterable<SupervisorModel> getAllSupervisors() {
-        return userRepository.findAllSupervisors();
+    public CursorPageModel<Map<String, Object>> getAllStudents(String cursor, Integer size) {
+        Pageable request = paginationService.request(size);
+        return paginationService.page(userRepository.findStudentsAfter(paginationService.after(cursor), request), request, e -> (Integer) e.get("id"));
     }
 
     /**
-     * Method which returns all users with student role
+     * Method which returns a page of students with their respective supervisor
      *
-     * @return Iterable<UserModel> collection of all students
+     * @param cursor the cursor of the page, null for the first page
+     * @param size the page size, may be null
+     * @return CursorPageModel<Map<String, Object>> page of students
      */
-    public @ResponseBody Iterable<StudentModel> getAllStudents() {
-        return userRepository.findAllStudents();
+    public CursorPageModel<Map<String, Object>> getAllStudentsWithRespectiveSupervisor(String cursor, Integer size) {
+        return supervisionViewService.getStudentsWithRespectiveSupervisor(cursor, size);
     }
 
     /**
@@ -197,9 +234,7 @@ public class UserService implements UserDetailsService {
             Map<String, Object> map = new LinkedHashMap<>();
             List<String> roleList = new ArrayList<>();
             UserModel user = userRepository.findById(id);
-            for (int i = 0; i < user.getRoles().size(); i++) {
-                roleList.add(user.getRoles().get(i).getRole().name());
-            }
+            roleRegistry.rolesOf(user).forEach(e -> roleList.add(e.name()));
             map.put("user", user);
             map.put("roles", roleList);
             return map;
@@ -221,15 +256,7 @@ public class UserService implements UserDetailsService {
     private List<RoleModel> fetchRoles(UserModel user, ArrayList<Role> roles) {
         List<RoleModel> list =  user.getRoles();
         list.clear();
-        roles.forEach(e -> {
-            if (roleRepository.findByRole(e) == null) {
-                RoleModel role = new RoleModel();
-                role.setRole(e);
-                list.add(role);
-            } else {
-                list.add(roleRepository.findByRole(e));
-            }
-        });
+        list.addAll(roleRegistry.references(roles));
         return list;
     }
 
@@ -242,57 +269,95 @@ public class UserService implements UserDetailsService {
      * @param header deciding whether an account should be upgraded
      * @return ResponseEntity the response
      */
-    @SuppressWarnings("Duplicates")
+    @Transactional
     public @ResponseBody ResponseEntity setUserRoles(int id, @RequestBody ArrayList<Role> roles, String header) throws NotFoundException {
         try {
             UserModel user = userRepository.findById(id);
-            List<RoleModel> list = fetchRoles(user, roles);
-            // Upgrading user to student account
-            if (header.equals("student")) {
-                StudentModel studentModel = new StudentModel();
-                studentModel.setName(user.getName());
-                studentModel.setPassword(user.getPassword());
-                studentModel.setEmail(user.getEmail());
-                studentModel.setSurname(user.getSurname());
-                studentModel.setRoles(list);
-                userRepository.deleteById(user.getId());
-                userRepository.save(studentModel);
-            }
-            // Upgrading user to coordinator account
-            else if (header.equals("coordinator")) {
-                CoordinatorModel coordinatorModel = new CoordinatorModel();
-                coordinatorModel.setName(user.getName());
-                coordinatorModel.setPassword(user.getPassword());
-                coordinatorModel.setEmail(user.getEmail());
-                coordinatorModel.setSurname(user.getSurname());
-                coordinatorModel.setRoles(list);
-                userRepository.deleteById(user.getId());
-                userRepository.save(coordinatorModel);
+            if (user == null) {
+                throw new NotFoundException();
             }
-            // Upgrading user to supervisor account
-            else if (header.equals("supervisor")) {
-                SupervisorModel supervisorModel = new SupervisorModel();
-                supervisorModel.setName(user.getName());
-                supervisorModel.setPassword(user.getPassword());
-                supervisorModel.setEmail(user.getEmail());
-                supervisorModel.setSurname(user.getSurname());
-                supervisorModel.setRoles(list);
-                userRepository.deleteById(user.getId());
-                userRepository.save(supervisorModel);
+            Class<? extends UserModel> type = ACCOUNT_TYPES.get(header);
+            // Upgrading user to student, supervisor or coordinator account
+            if (type != null) {
+                if (upgradeAccounts(Collections.singletonList(id), roles, type).isEmpty()) {
+                    throw new BadRequestException("Only user accounts can be upgraded");
+                }
             }
             // Updating roles
             else if (header.equals("none")) {
-                user.setRoles(list);
+                user.setRoles(fetchRoles(user, roles));
+                // Tokens carry the roles, so outstanding ones are revoked
+                user.setTokenVersion(user.getTokenVersion() + 1);
                 userRepository.save(user);
+                invalidateTokenVersions(Collections.singletonList(id));
             }
             return new ResponseEntity<>("Roles successfully updated", HttpStatus.OK);
         } catch (NotFoundException e) {
             throw new NotFoundException("User not found" + e);
+        } catch (BadRequestException e) {
+            throw e;
         } catch (Exception e) {
             throw new InternalErrorException("An error occurred " + e);
         }
     }
 
+    /**
+     * Method which upgrades a batch of user accounts, such as a
+     * whole intake, to one account type and sets their roles.
+     * Ids which do not belong to a plain user account are skipped
+     *
+     * @param request the user ids and the selected roles
+     * @param header the account type to upgrade to
+     * @return ResponseEntity<List<Integer>> the ids of the upgraded accounts
+     */
+    @Transactional
+    public ResponseEntity<List<Integer>> upgradeAccounts(AccountUpgradeModel request, String header) throws BadRequestException {
+        Class<? extends UserModel> type = ACCOUNT_TYPES.get(header);
+        if (type == null || request.getIds() == null || request.getRoles() == null) {
+            throw new BadRequestException("Missing fields");
+        }
+        return new ResponseEntity<>(upgradeAccounts(request.getIds(), request.getRoles(), type), HttpStatus.OK);
+    }
+
+    /**
+     * Method which changes the account type of plain user accounts
+     * in place, keeping their ids, and replaces their roles, using
+     * a fixed number of statements regardless of the batch size
+     *
+     * @param ids the user ids
+     * @param roles the selected roles
+     * @param type the account type to upgrade to
+     * @return List<Integer> the ids of the upgraded accounts
+     */
+    private List<Integer> upgradeAccounts(Collection<Integer> ids, Collection<Role> roles, Class<? extends UserModel> type) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> upgraded = userRepository.lockIdsByAccountType(ids, accountType(UserModel.class));
+        if (!upgraded.isEmpty()) {
+            userRepository.updateAccountType(upgraded, accountType(type));
+            userRepository.deleteRoles(upgraded);
+            if (!roles.isEmpty()) {
+                userRepository.insertRoles(upgraded, roleRegistry.ids(roles));
+            }
+            invalidateTokenVersions(upgraded);
+        }
+        return upgraded;
+    }
+
+    static String accountType(Class<? extends UserModel> type) {
+        return type.getAnnotation(DiscriminatorValue.class).value();
+    }
+
+    private void invalidateTokenVersions(Collection<Integer> ids) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                ids.forEach(tokenVersionCache::invalidate);
+            }
+        });
+    }
+
     /**
      * Method which saves a request of supervision by student
      *
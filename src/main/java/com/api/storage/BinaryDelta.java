@@ -0,0 +1,213 @@
+package com.api.storage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * rsync style binary delta between two files. The base file is indexed
+ * by a rolling checksum of fixed-size blocks; the target is scanned
+ * for blocks of the base and encoded as a sequence of COPY (offset and
+ * length in the base) and INSERT (literal bytes) instructions.
+ *
+ * Both files are memory mapped while encoding, and applying a delta
+ * only needs random access to the base, so neither side is loaded
+ * onto the heap.
+ */
+public final class BinaryDelta {
+
+    private static final int MAGIC = 0x53444431;
+
+    private static final byte END = 0;
+    private static final byte COPY = 1;
+    private static final byte INSERT = 2;
+
+    public static final int BLOCK_SIZE = 2048;
+
+    private BinaryDelta() {
+    }
+
+    /**
+     * Method which writes the delta turning a base file into a target file
+     *
+     * @param base the file the delta is applied to
+     * @param target the file the delta reproduces
+     * @param out the stream to write the delta to
+     * @return long the number of literal bytes in the delta
+     * @throws IOException if the files cannot be read or the delta written
+     */
+    public static long encode(Path base, Path target, OutputStream out) throws IOException {
+        try (FileChannel baseChannel = FileChannel.open(base, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.READ)) {
+            if (baseChannel.size() > Integer.MAX_VALUE || targetChannel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large for a delta");
+            }
+            MappedByteBuffer from = baseChannel.map(FileChannel.MapMode.READ_ONLY, 0, baseChannel.size());
+            MappedByteBuffer to = targetChannel.map(FileChannel.MapMode.READ_ONLY, 0, targetChannel.size());
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeLong(from.limit());
+            data.writeLong(to.limit());
+            long literals = encode(from, to, data);
+            data.writeByte(END);
+            data.flush();
+            return literals;
+        }
+    }
+
+    private static long encode(ByteBuffer base, ByteBuffer target, DataOutputStream out) throws IOException {
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int offset = 0; offset + BLOCK_SIZE <= base.limit(); offset += BLOCK_SIZE) {
+            blocks.putIfAbsent(checksum(base, offset), offset);
+        }
+
+        long literals = 0;
+        int length = target.limit();
+        int literalStart = 0;
+        int position = 0;
+        int weak = position + BLOCK_SIZE <= length ? checksum(target, position) : 0;
+        while (position + BLOCK_SIZE <= length) {
+            Integer offset = blocks.get(weak);
+            if (offset != null && equal(base, offset, target, position, BLOCK_SIZE)) {
+                int matched = BLOCK_SIZE;
+                while (offset + matched < base.limit() && position + matched < length
+                        && base.get(offset + matched) == target.get(position + matched)) {
+                    matched++;
+                }
+                literals += writeInsert(out, target, literalStart, position);
+                out.writeByte(COPY);
+                out.writeLong(offset);
+                out.writeInt(matched);
+                position += matched;
+                literalStart = position;
+                if (position + BLOCK_SIZE <= length) {
+                    weak = checksum(target, position);
+                }
+                continue;
+            }
+            if (position + BLOCK_SIZE < length) {
+                weak = roll(weak, target.get(position), target.get(position + BLOCK_SIZE));
+            }
+            position++;
+        }
+        literals += writeInsert(out, target, literalStart, length);
+        return literals;
+    }
+
+    /**
+     * Method which applies a delta to a base file
+     *
+     * @param base the file the delta was computed against
+     * @param delta the delta
+     * @param target the channel to write the reproduced file to
+     * @throws IOException if the delta is invalid or the files cannot be read or written
+     */
+    public static void apply(Path base, InputStream delta, WritableByteChannel target) throws IOException {
+        DataInputStream in = new DataInputStream(delta);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary delta");
+        }
+        long baseLength = in.readLong();
+        in.readLong();
+        try (FileChannel from = FileChannel.open(base, StandardOpenOption.READ)) {
+            if (from.size() != baseLength) {
+                throw new IOException("Delta does not match its base");
+            }
+            byte[] buffer = new byte[UploadStream.CHUNK_SIZE];
+            byte op;
+            while ((op = in.readByte()) != END) {
+                if (op == COPY) {
+                    long position = in.readLong();
+                    long end = position + in.readInt();
+                    while (position < end) {
+                        position += from.transferTo(position, end - position, target);
+                    }
+                } else if (op == INSERT) {
+                    int remaining = in.readInt();
+                    while (remaining > 0) {
+                        int n = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                        if (n == -1) {
+                            throw new EOFException("Truncated delta");
+                        }
+                        ByteBuffer wrapped = ByteBuffer.wrap(buffer, 0, n);
+                        while (wrapped.hasRemaining()) {
+                            target.write(wrapped);
+                        }
+                        remaining -= n;
+                    }
+                } else {
+                    throw new IOException("Invalid delta instruction " + op);
+                }
+            }
+        }
+    }
+
+    private static long writeInsert(DataOutputStream out, ByteBuffer target, int start, int end) throws IOException {
+        for (int offset = start; offset < end; offset += UploadStream.CHUNK_SIZE) {
+            int n = Math.min(UploadStream.CHUNK_SIZE, end - offset);
+            out.writeByte(INSERT);
+            out.writeInt(n);
+            byte[] chunk = new byte[n];
+            ByteBuffer slice = target.duplicate();
+            slice.position(offset);
+            slice.get(chunk);
+            out.write(chunk);
+        }
+        return end - start;
+    }
+
+    /**
+     * Method which computes the Adler style weak checksum of a block,
+     * packed as b << 16 | a
+     *
+     * @param buffer the content
+     * @param offset the start of the block
+     * @return int the checksum
+     */
+    private static int checksum(ByteBuffer buffer, int offset) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            int x = buffer.get(offset + i) & 0xff;
+            a += x;
+            b += (BLOCK_SIZE - i) * x;
+        }
+        return (b & 0xffff) << 16 | (a & 0xffff);
+    }
+
+    /**
+     * Method which slides the weak checksum of a block one byte forward
+     *
+     * @param weak the checksum of the current block
+     * @param out the first byte of the current block
+     * @param in the byte following the current block
+     * @return int the checksum of the next block
+     */
+    private static int roll(int weak, byte out, byte in) {
+        int a = weak & 0xffff;
+        int b = weak >>> 16;
+        a = (a - (out & 0xff) + (in & 0xff)) & 0xffff;
+        b = (b - BLOCK_SIZE * (out & 0xff) + a) & 0xffff;
+        return b << 16 | a;
+    }
+
+    private static boolean equal(ByteBuffer base, int offset, ByteBuffer target, int position, int length) {
+        for (int i = 0; i < length; i++) {
+            if (base.get(offset + i) != target.get(position + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
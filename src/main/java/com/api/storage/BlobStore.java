@@ -0,0 +1,69 @@
+package com.api.storage;
+
+import com.api.models.enums.StorageCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Content-addressed store for submission files. Blobs are keyed
+ * by the hex encoded SHA-256 of their content, so identical
+ * uploads are only stored once.
+ */
+public interface BlobStore {
+
+    /**
+     * Method which stores the content of a stream
+     *
+     * @param in the content to store
+     * @param maxBytes the maximum number of bytes accepted
+     * @return StoredBlob the hash and size of the stored content
+     * @throws IOException if the content cannot be read or written
+     */
+    StoredBlob put(InputStream in, long maxBytes) throws IOException;
+
+    /**
+     * Method which opens stored content for reading, finding how it is stored
+     *
+     * @param hash the content hash
+     * @return StoredContent the content, or null if it does not exist
+     * @throws IOException if the content cannot be opened
+     */
+    default StoredContent get(String hash) throws IOException {
+        return get(hash, null);
+    }
+
+    /**
+     * Method which opens stored content for reading, looking first
+     * for the form it was recorded as stored in
+     *
+     * @param hash the content hash
+     * @param codec the codec recorded when the content was stored, may be null
+     * @return StoredContent the content, or null if it does not exist
+     * @throws IOException if the content cannot be opened
+     */
+    StoredContent get(String hash, StorageCodec codec) throws IOException;
+
+    /**
+     * Method which removes stored content, unless it was stored or
+     * reused by {@link #put} within the grace period. A blob reused by a
+     * transaction which has not committed yet is therefore kept, even
+     * though no committed row references it
+     *
+     * @param hash the content hash
+     * @param graceMillis how long after its last use a blob is kept
+     * @return boolean whether the content was removed
+     * @throws IOException if the content cannot be removed
+     */
+    boolean deleteIfIdle(String hash, long graceMillis) throws IOException;
+
+    /**
+     * Method which lists the blobs not stored or reused within the grace period
+     *
+     * @param graceMillis how long after its last use a blob is kept
+     * @return List<String> the hashes of the idle blobs
+     * @throws IOException if the store cannot be listed
+     */
+    List<String> findIdle(long graceMillis) throws IOException;
+}
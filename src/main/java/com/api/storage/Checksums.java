@@ -0,0 +1,27 @@
+package com.api.storage;
+
+/**
+ * Helpers for encoding the checksums used to identify stored files.
+ */
+public final class Checksums {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Checksums() {
+    }
+
+    /**
+     * Method which hex encodes a digest
+     *
+     * @param bytes the digest bytes
+     * @return String lower case hex representation
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
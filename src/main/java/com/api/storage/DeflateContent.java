@@ -0,0 +1,123 @@
+package com.api.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stored content kept deflate compressed on disk and inflated
+ * through a fixed-size buffer while it is written out. The file
+ * starts with a small header holding the original length, so
+ * the content can be described without inflating it.
+ *
+ * The stream has no seek points, so a range is reached by inflating
+ * everything before it; the content is therefore not seekable and
+ * is only served whole.
+ */
+public class DeflateContent implements StoredContent {
+
+    private static final int MAGIC = 0x53444631;
+
+    static final int HEADER_LENGTH = 12;
+
+    private final Path path;
+    private final long length;
+    private final String checksum;
+
+    public DeflateContent(Path path, long length, String checksum) {
+        this.path = path;
+        this.length = length;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Method which opens compressed content, reading its original length from the header
+     *
+     * @param path the compressed file
+     * @param checksum the checksum of the original content
+     * @return DeflateContent the content
+     * @throws IOException if the file cannot be read or has no valid header
+     */
+    public static DeflateContent open(Path path, String checksum) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a compressed blob " + path);
+            }
+            return new DeflateContent(path, in.readLong(), checksum);
+        }
+    }
+
+    /**
+     * Method which writes the header of a compressed file
+     *
+     * @param out the stream to write to
+     * @param length the original content length
+     * @throws IOException if writing fails
+     */
+    static void writeHeader(OutputStream out, long length) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeLong(length);
+        data.flush();
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return false;
+    }
+
+    @Override
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        try (InputStream file = Files.newInputStream(path)) {
+            skipFully(file, HEADER_LENGTH);
+            try (InputStream in = new InflaterInputStream(new BufferedInputStream(file, UploadStream.CHUNK_SIZE))) {
+                skipFully(in, position);
+                byte[] chunk = new byte[UploadStream.CHUNK_SIZE];
+                long remaining = count;
+                while (remaining > 0) {
+                    int n = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                    if (n == -1) {
+                        throw new EOFException("Unexpected end of compressed blob " + path);
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, n);
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    remaining -= n;
+                }
+            }
+        }
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("Unexpected end of compressed blob");
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+}
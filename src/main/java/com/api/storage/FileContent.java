@@ -0,0 +1,53 @@
+package com.api.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stored content backed by a file, written with
+ * {@link FileChannel#transferTo} so the kernel can copy
+ * the bytes without passing them through the heap.
+ */
+public class FileContent implements StoredContent {
+
+    private final Path path;
+    private final long length;
+    private final String checksum;
+
+    public FileContent(Path path, long length, String checksum) {
+        this.path = path;
+        this.length = length;
+        this.checksum = checksum;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = position + count;
+            while (position < end) {
+                long written = channel.transferTo(position, end - position, target);
+                if (written <= 0 && position >= channel.size()) {
+                    throw new IOException("Unexpected end of file " + path);
+                }
+                position += written;
+            }
+        }
+    }
+}
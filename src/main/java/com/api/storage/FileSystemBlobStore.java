@@ -0,0 +1,345 @@
+package com.api.storage;
+
+import com.api.models.enums.StorageCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Blob store keeping each blob in a file named by its hash,
+ * sharded into two directory levels (ab/cd/abcd...). Content
+ * is written to a temporary file first and renamed into place
+ * atomically once its hash is known.
+ *
+ * New blobs are deflate compressed when a sample of their content
+ * suggests it pays off, and the compressed form is kept only if it
+ * saves at least submission.storage.compression.min-savings of the
+ * original size. Compressed blobs carry a .deflate suffix.
+ *
+ * The modification time of a blob records its last use: it is set when
+ * the blob is stored and refreshed whenever an upload reuses it. Reuse
+ * and deletion of a hash hold the same lock, and deletion skips blobs
+ * used within the grace period, so a blob picked up by an upload which
+ * has not committed yet survives the release of its last committed
+ * reference.
+ */
+@Component
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final String DEFLATE_SUFFIX = ".deflate";
+
+    private static final int MIN_COMPRESSIBLE_SIZE = 4 * 1024;
+    private static final int SAMPLE_SIZE = 1024 * 1024;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path root;
+    private final Path incoming;
+    private final boolean compression;
+    private final double minSavings;
+    private final int level;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public FileSystemBlobStore(@Value("${submission.storage.root:data/blobs}") String root,
+                               @Value("${submission.storage.compression.enabled:true}") boolean compression,
+                               @Value("${submission.storage.compression.min-savings:0.1}") double minSavings,
+                               @Value("${submission.storage.compression.level:1}") int level) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath();
+        this.incoming = this.root.resolve("incoming");
+        this.compression = compression;
+        this.minSavings = minSavings;
+        this.level = level;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        Files.createDirectories(incoming);
+    }
+
+    @Override
+    public StoredBlob put(InputStream in, long maxBytes) throws IOException {
+        Path temp = incoming.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            UploadStream upload = new UploadStream(in, maxBytes);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                byte[] chunk = new byte[UploadStream.CHUNK_SIZE];
+                int n;
+                while ((n = upload.read(chunk, 0, chunk.length)) != -1) {
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, n);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                channel.force(true);
+            }
+            String hash = upload.getChecksum();
+            long size = upload.getByteCount();
+            StoredBlob existing = reuse(hash, size);
+            if (existing != null) {
+                return existing;
+            }
+            Path target = resolve(hash);
+            Files.createDirectories(target.getParent());
+            if (compression && size >= MIN_COMPRESSIBLE_SIZE && compresses(temp, Math.min(size, SAMPLE_SIZE))) {
+                Path packed = incoming.resolve(UUID.randomUUID() + DEFLATE_SUFFIX + ".tmp");
+                try {
+                    if (deflate(temp, packed, size) <= size * (1 - minSavings)) {
+                        return place(packed, target.resolveSibling(hash + DEFLATE_SUFFIX), hash, size, StorageCodec.DEFLATE);
+                    }
+                } finally {
+                    Files.deleteIfExists(packed);
+                }
+            }
+            return place(temp, target, hash, size, StorageCodec.NONE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public StoredContent get(String hash, StorageCodec codec) throws IOException {
+        Path path = resolve(hash);
+        Path packed = path.resolveSibling(hash + DEFLATE_SUFFIX);
+        // The other form is still tried, as a collected blob may since have been stored again differently
+        if (codec == StorageCodec.DEFLATE && Files.isRegularFile(packed)) {
+            return DeflateContent.open(packed, hash);
+        }
+        if (Files.isRegularFile(path)) {
+            return new FileContent(path, Files.size(path), hash);
+        }
+        if (codec != StorageCodec.DEFLATE && Files.isRegularFile(packed)) {
+            return DeflateContent.open(packed, hash);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean deleteIfIdle(String hash, long graceMillis) throws IOException {
+        Path path = resolve(hash);
+        Path packed = path.resolveSibling(hash + DEFLATE_SUFFIX);
+        long cutoff = System.currentTimeMillis() - graceMillis;
+        synchronized (lockFor(hash)) {
+            if (usedSince(path, cutoff) || usedSince(packed, cutoff)) {
+                return false;
+            }
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(packed);
+            return true;
+        }
+    }
+
+    @Override
+    public List<String> findIdle(long graceMillis) throws IOException {
+        long cutoff = System.currentTimeMillis() - graceMillis;
+        List<String> hashes = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.equals(incoming) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = file.getFileName().toString();
+                String hash = name.endsWith(DEFLATE_SUFFIX) ? name.substring(0, name.length() - DEFLATE_SUFFIX.length()) : name;
+                if (HASH.matcher(hash).matches() && attrs.lastModifiedTime().toMillis() < cutoff) {
+                    hashes.add(hash);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return hashes;
+    }
+
+    /**
+     * Method which reuses an existing blob with the same content,
+     * marking it as used so a concurrent release does not delete it
+     *
+     * @param hash the content hash
+     * @param size the content length
+     * @return StoredBlob the existing blob, or null if there is none
+     * @throws IOException if the blob cannot be touched
+     */
+    private StoredBlob reuse(String hash, long size) throws IOException {
+        synchronized (lockFor(hash)) {
+            StorageCodec existing = codecOf(hash);
+            if (existing == null) {
+                return null;
+            }
+            Path path = resolve(hash);
+            Files.setLastModifiedTime(existing == StorageCodec.DEFLATE ? path.resolveSibling(hash + DEFLATE_SUFFIX) : path,
+                    FileTime.fromMillis(System.currentTimeMillis()));
+            return new StoredBlob(hash, size, existing);
+        }
+    }
+
+    /**
+     * Method which moves new content into place, unless a concurrent
+     * upload of the same content got there first
+     *
+     * @param source the finished temporary file
+     * @param target the blob file
+     * @param hash the content hash
+     * @param size the content length
+     * @param codec how the source is stored
+     * @return StoredBlob the stored blob
+     * @throws IOException if the file cannot be moved
+     */
+    private StoredBlob place(Path source, Path target, String hash, long size, StorageCodec codec) throws IOException {
+        synchronized (lockFor(hash)) {
+            StoredBlob existing = reuse(hash, size);
+            if (existing != null) {
+                return existing;
+            }
+            moveIntoPlace(source, target);
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            return new StoredBlob(hash, size, codec);
+        }
+    }
+
+    private Object lockFor(String hash) {
+        return locks[(hash.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    private static boolean usedSince(Path path, long cutoff) throws IOException {
+        try {
+            return Files.getLastModifiedTime(path).toMillis() >= cutoff;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Method which finds how an existing blob is stored
+     *
+     * @param hash the content hash
+     * @return StorageCodec the codec, or null if the blob does not exist
+     */
+    private StorageCodec codecOf(String hash) {
+        Path path = resolve(hash);
+        if (Files.exists(path)) {
+            return StorageCodec.NONE;
+        }
+        if (Files.exists(path.resolveSibling(hash + DEFLATE_SUFFIX))) {
+            return StorageCodec.DEFLATE;
+        }
+        return null;
+    }
+
+    /**
+     * Method which estimates whether content is worth compressing
+     * by deflating a sample from its start
+     *
+     * @param file the uncompressed file
+     * @param sampleSize the number of bytes to sample
+     * @return boolean whether the sample shrinks enough
+     * @throws IOException if the file cannot be read
+     */
+    private boolean compresses(Path file, long sampleSize) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (InputStream in = Files.newInputStream(file)) {
+            DeflaterOutputStream out = new DeflaterOutputStream(counter, deflater, UploadStream.CHUNK_SIZE);
+            copy(in, out, sampleSize);
+            out.finish();
+        } finally {
+            deflater.end();
+        }
+        return counter.count <= sampleSize * (1 - minSavings);
+    }
+
+    /**
+     * Method which writes a compressed copy of a file
+     *
+     * @param source the uncompressed file
+     * @param target the compressed file to create
+     * @param length the uncompressed length
+     * @return long the compressed size in bytes
+     * @throws IOException if the files cannot be read or written
+     */
+    private long deflate(Path source, Path target, long length) throws IOException {
+        Deflater deflater = new Deflater(level);
+        try (InputStream in = Files.newInputStream(source);
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            OutputStream file = Channels.newOutputStream(channel);
+            DeflateContent.writeHeader(file, length);
+            DeflaterOutputStream out = new DeflaterOutputStream(file, deflater, UploadStream.CHUNK_SIZE);
+            copy(in, out, length);
+            out.finish();
+            out.flush();
+            channel.force(true);
+            return channel.size();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] chunk = new byte[UploadStream.CHUNK_SIZE];
+        long remaining = limit;
+        int n;
+        while (remaining > 0 && (n = in.read(chunk, 0, (int) Math.min(chunk.length, remaining))) != -1) {
+            out.write(chunk, 0, n);
+            remaining -= n;
+        }
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by an identical upload
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    /**
+     * Method which maps a hash to its sharded location
+     *
+     * @param hash the content hash
+     * @return Path the blob file
+     */
+    private Path resolve(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid blob hash " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+}
@@ -0,0 +1,31 @@
+package com.api.storage;
+
+import com.api.models.enums.StorageCodec;
+
+/**
+ * Hash, size and storage codec of content written to a {@link BlobStore}.
+ */
+public class StoredBlob {
+
+    private final String hash;
+    private final long size;
+    private final StorageCodec codec;
+
+    public StoredBlob(String hash, long size, StorageCodec codec) {
+        this.hash = hash;
+        this.size = size;
+        this.codec = codec;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public StorageCodec getCodec() {
+        return codec;
+    }
+}
@@ -0,0 +1,46 @@
+package com.api.storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Stored file content which can be written to a client
+ * in whole or as a byte range without loading it onto the heap.
+ */
+public interface StoredContent {
+
+    /**
+     * Method which returns the total content length in bytes
+     *
+     * @return long the content length
+     */
+    long getLength();
+
+    /**
+     * Method which returns the hex encoded SHA-256 checksum of the content,
+     * or null when it is unknown
+     *
+     * @return String the checksum
+     */
+    String getChecksum();
+
+    /**
+     * Method which writes a range of the content to a channel
+     *
+     * @param position the zero based offset of the first byte
+     * @param count the number of bytes to write
+     * @param target the channel to write to
+     * @throws IOException if reading or writing fails
+     */
+    void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * Method which tells whether a range can be read without reading
+     * the content before it, and so whether ranges should be offered
+     *
+     * @return boolean whether the content is seekable
+     */
+    default boolean isSeekable() {
+        return true;
+    }
+}
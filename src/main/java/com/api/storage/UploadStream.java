@@ -0,0 +1,93 @@
+package com.api.storage;
+
+import com.api.controllers.exceptions.FileStorageException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Input stream which hands an upload to the persistence layer
+ * in fixed-size chunks, computing a SHA-256 checksum and
+ * enforcing a size limit while the bytes pass through.
+ */
+public class UploadStream extends FilterInputStream {
+
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private final MessageDigest digest;
+    private final long maxBytes;
+    private long byteCount;
+    private String checksum;
+
+    public UploadStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            digest.update((byte) b);
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, Math.min(len, CHUNK_SIZE));
+        if (n > 0) {
+            digest.update(b, off, n);
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        throw new IOException("Skipping is not supported on uploads");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Method which returns the number of bytes read so far
+     *
+     * @return long the byte count
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Method which returns the hex encoded SHA-256 checksum,
+     * only valid once the stream has been fully consumed
+     *
+     * @return String the checksum
+     */
+    public String getChecksum() {
+        if (checksum == null) {
+            checksum = Checksums.toHex(digest.digest());
+        }
+        return checksum;
+    }
+
+    private void count(int n) {
+        byteCount += n;
+        if (byteCount > maxBytes) {
+            throw new FileStorageException("File exceeds maximum size of " + maxBytes + " bytes");
+        }
+    }
+}
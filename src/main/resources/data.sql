@@ -3,4 +3,6 @@ INSERT INTO spring_db.roles (id, role) VALUES (2, 'ROLE_READER');
 INSERT INTO spring_db.roles (id, role) VALUES (3, 'ROLE_OPPONENT');
 INSERT INTO spring_db.roles (id, role) VALUES (4, 'ROLE_SUPERVISOR');
 INSERT INTO spring_db.roles (id, role) VALUES (5, 'ROLE_COORDINATOR');
-INSERT INTO spring_db.roles (id, role) VALUES (6, 'ROLE_ADMIN');
\ No newline at end of file
+INSERT INTO spring_db.roles (id, role) VALUES (6, 'ROLE_ADMIN');
+-- Ids are allocated from roles_seq, continue after the seeded rows
+UPDATE spring_db.roles_seq SET next_val = 7;
\ No newline at end of file
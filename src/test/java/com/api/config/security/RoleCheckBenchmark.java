@@ -0,0 +1,94 @@
+package com.api.config.security;
+
+import com.api.models.enums.Role;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.ExpressionBasedAnnotationAttributeFactory;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdviceVoter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of one authorization decision for a controller
+ * method open to every role, made by the previous SpEL hasRole chain
+ * and by {@link RoleMaskVoter}. The principal holds a single role, so
+ * ROLE_STUDENT is the best and ROLE_ADMIN the worst case for the chain.
+ *
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.api.config.security.RoleCheckBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoleCheckBenchmark {
+
+    private static final String EXPRESSION = "hasRole('ROLE_STUDENT') or hasRole('ROLE_READER') or hasRole('ROLE_OPPONENT') or "
+            + "hasRole('ROLE_SUPERVISOR') or hasRole('ROLE_COORDINATOR') or hasRole('ROLE_ADMIN')";
+
+    @Param({"ROLE_STUDENT", "ROLE_ADMIN"})
+    public Role role;
+
+    private Authentication authentication;
+    private MethodInvocation invocation;
+
+    private PreInvocationAuthorizationAdviceVoter expressionVoter;
+    private Collection<ConfigAttribute> expressionAttributes;
+
+    private RoleMaskVoter maskVoter;
+    private Collection<ConfigAttribute> maskAttributes;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        TokenPrincipal principal = new TokenPrincipal(1, "user@example.com", null, EnumSet.of(role), 0);
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        invocation = new SimpleMethodInvocation(this, RoleCheckBenchmark.class.getMethod("setUp"));
+
+        DefaultMethodSecurityExpressionHandler handler = new DefaultMethodSecurityExpressionHandler();
+        ExpressionBasedPreInvocationAdvice advice = new ExpressionBasedPreInvocationAdvice();
+        advice.setExpressionHandler(handler);
+        expressionVoter = new PreInvocationAuthorizationAdviceVoter(advice);
+        expressionAttributes = Collections.singletonList(
+                new ExpressionBasedAnnotationAttributeFactory(handler).createPreInvocationAttribute(null, null, EXPRESSION));
+
+        maskVoter = new RoleMaskVoter();
+        maskAttributes = Collections.singletonList(new RoleMaskAttribute(Role.values()));
+    }
+
+    @Benchmark
+    public int spelHasRoleChain() {
+        return expressionVoter.vote(authentication, invocation, expressionAttributes);
+    }
+
+    @Benchmark
+    public int roleMask() {
+        return maskVoter.vote(authentication, invocation, maskAttributes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RoleCheckBenchmark.class.getSimpleName()).build()).run();
+    }
+}
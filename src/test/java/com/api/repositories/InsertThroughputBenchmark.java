@@ -0,0 +1,90 @@
+package com.api.repositories;
+
+import com.api.Main;
+import com.api.models.CalendarModel;
+import com.api.models.CommentModel;
+import com.api.models.SubmissionModel;
+import com.api.models.UserModel;
+import com.api.models.enums.CommentType;
+import com.api.models.enums.Grade;
+import com.api.models.enums.SubmissionType;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.function.IntFunction;
+
+/**
+ * Reports how many comments, calendar events and users per second
+ * Hibernate inserts through the persistence context, flushing and
+ * clearing every hibernate.jdbc.batch_size rows as a bulk job would.
+ *
+ * Needs the MySQL database from application.properties, which it
+ * recreates like the application does. Run it on a revision still
+ * using IDENTITY ids and on one using pooled ids to compare; Spring
+ * arguments select the settings, e.g. batching off:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.api.repositories.InsertThroughputBenchmark [-Drows=5000] \
+ *       [-Dexec.args="--spring.jpa.properties.hibernate.jdbc.batch_size=1"]
+ */
+public class InsertThroughputBenchmark {
+
+    private static final int ROWS = Integer.getInteger("rows", 5000);
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE).run(args)) {
+            EntityManagerFactory factory = context.getBean(EntityManagerFactory.class);
+            int batchSize = Integer.parseInt(String.valueOf(factory.getProperties().getOrDefault("hibernate.jdbc.batch_size", "1")));
+            System.out.printf("%d rows per round, hibernate.jdbc.batch_size=%d%n", ROWS, batchSize);
+            System.out.printf("%-10s %12s%n", "entity", "rows/s");
+
+            EntityManager setup = factory.createEntityManager();
+            setup.getTransaction().begin();
+            UserModel author = new UserModel("Bench", "Author", "bench-author@example.com", "x");
+            setup.persist(author);
+            SubmissionModel submission = new SubmissionModel();
+            submission.setTitle("Benchmark");
+            submission.setDescription("Benchmark");
+            submission.setGrade(Grade.PENDING);
+            submission.setType(SubmissionType.values()[0]);
+            submission.setUser(author);
+            setup.persist(submission);
+            setup.getTransaction().commit();
+            setup.close();
+
+            LocalDateTime now = LocalDateTime.now();
+            report("comment", factory, batchSize, i -> new CommentModel("Comment " + i, CommentType.COMMENT, submission, author));
+            report("calendar", factory, batchSize, i -> new CalendarModel(now, now.plusDays(1), "Event " + i, "Benchmark"));
+            report("user", factory, batchSize, i -> new UserModel("Name", "Surname " + i, "bench-" + System.nanoTime() + "@example.com", "x"));
+        }
+    }
+
+    private static void report(String name, EntityManagerFactory factory, int batchSize, IntFunction<Object> entity) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            EntityManager em = factory.createEntityManager();
+            try {
+                long start = System.nanoTime();
+                em.getTransaction().begin();
+                for (int i = 0; i < ROWS; i++) {
+                    em.persist(entity.apply(i));
+                    if ((i + 1) % batchSize == 0) {
+                        em.flush();
+                        em.clear();
+                    }
+                }
+                em.getTransaction().commit();
+                best = Math.min(best, System.nanoTime() - start);
+            } finally {
+                em.close();
+            }
+        }
+        System.out.printf("%-10s %12.0f%n", name, ROWS / (best / 1e9));
+    }
+}
@@ -0,0 +1,125 @@
+package com.api.repositories;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.MySQL5InnoDBDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Table;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.persistence.Entity;
+import java.lang.reflect.Method;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the queries behind the submission listing endpoints never
+ * select binary columns, by translating them against the entity mappings.
+ * No database connection is needed.
+ */
+public class SubmissionMetadataQueryTest {
+
+    private static final List<Integer> BINARY_TYPES = Arrays.asList(Types.BLOB, Types.CLOB, Types.LONGVARBINARY, Types.VARBINARY, Types.BINARY);
+
+    private static StandardServiceRegistry registry;
+    private static Metadata metadata;
+    private static SessionFactoryImplementor sessionFactory;
+
+    @BeforeClass
+    public static void buildMappings() throws ClassNotFoundException {
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, MySQL5InnoDBDialect.class.getName())
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", false)
+                .build();
+        MetadataSources sources = new MetadataSources(registry);
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        for (BeanDefinition definition : scanner.findCandidateComponents("com.api.models")) {
+            sources.addAnnotatedClass(Class.forName(definition.getBeanClassName()));
+        }
+        metadata = sources.buildMetadata();
+        sessionFactory = (SessionFactoryImplementor) metadata.buildSessionFactory();
+    }
+
+    @AfterClass
+    public static void close() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Test
+    public void submissionTableHasNoBinaryColumns() {
+        assertTrue(binaryColumns("submission").isEmpty());
+    }
+
+    @Test
+    public void listingQueriesNeverSelectBinaryColumns() {
+        List<String> queries = new ArrayList<>(Arrays.asList(
+                "select t from SubmissionModel t",
+                "select t from SubmissionModel t where t.id = 1",
+                "select sub from StudentModel s join s.submissions sub"));
+        for (Class<?> repository : Arrays.asList(SubmissionRepository.class, StudentRepository.class, SubmissionStatusRepository.class,
+                UserRepository.class, CalendarRepository.class)) {
+            for (Method method : repository.getMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                if (query != null && !query.nativeQuery()) {
+                    queries.add(query.value());
+                }
+            }
+        }
+        List<String> binaryColumns = new ArrayList<>();
+        for (Table table : metadata.collectTableMappings()) {
+            binaryColumns.addAll(binaryColumns(table.getName()));
+        }
+        for (String hql : queries) {
+            String sql = translate(hql);
+            for (String column : binaryColumns) {
+                assertFalse(hql + " selects " + column, Pattern.compile("\\w+\\." + Pattern.quote(column) + "\\b").matcher(sql).find());
+            }
+        }
+    }
+
+    private static List<String> binaryColumns(String tableName) {
+        List<String> columns = new ArrayList<>();
+        for (Table table : metadata.collectTableMappings()) {
+            if (!table.getName().equals(tableName)) {
+                continue;
+            }
+            Iterator<Column> iterator = table.getColumnIterator();
+            while (iterator.hasNext()) {
+                Column column = iterator.next();
+                if (BINARY_TYPES.contains(column.getSqlTypeCode(metadata))) {
+                    columns.add(column.getName());
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static String translate(String hql) {
+        QueryTranslator translator = new ASTQueryTranslatorFactory()
+                .createQueryTranslator(hql, hql, Collections.emptyMap(), sessionFactory, null);
+        translator.compile(Collections.emptyMap(), false);
+        return translator.getSQLString();
+    }
+}
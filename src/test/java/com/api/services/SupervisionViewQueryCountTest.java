@@ -0,0 +1,111 @@
+package com.api.services;
+
+import com.api.models.StudentModel;
+import com.api.models.SubmissionModel;
+import com.api.models.SupervisorModel;
+import com.api.models.UserModel;
+import com.api.models.enums.Grade;
+import com.api.models.enums.SubmissionType;
+import com.api.config.metrics.QueryStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the supervisor and supervision listings, serialized as
+ * they are in a response, take the same number of queries whether a
+ * page covers a handful of students or many. Runs against H2.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.initialization-mode=never"})
+@Import({SupervisionViewService.class, PaginationService.class})
+public class SupervisionViewQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SupervisionViewService supervisionViewService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SupervisorModel first;
+    private SupervisorModel second;
+    private int students;
+
+    @Before
+    public void createSupervisors() {
+        first = persist(new SupervisorModel(), "first");
+        second = persist(new SupervisorModel(), "second");
+    }
+
+    @Test
+    public void supervisorsTakeConstantQueries() throws Exception {
+        addStudents(3);
+        long few = countQueries(() -> supervisionViewService.getSupervisors(null, null));
+        addStudents(40);
+        long many = countQueries(() -> supervisionViewService.getSupervisors(null, null));
+        assertEquals(few, many);
+        measure(() -> supervisionViewService.getSupervisors(null, null)).expectAtMost(4);
+    }
+
+    @Test
+    public void supervisionTakesConstantQueries() throws Exception {
+        addStudents(3);
+        long few = countQueries(() -> supervisionViewService.getStudentsWithRespectiveSupervisor(null, null));
+        addStudents(40);
+        long many = countQueries(() -> supervisionViewService.getStudentsWithRespectiveSupervisor(null, null));
+        assertEquals(few, many);
+        measure(() -> supervisionViewService.getStudentsWithRespectiveSupervisor(null, null)).expectAtMost(2);
+    }
+
+    private void addStudents(int count) {
+        for (int i = 0; i < count; i++) {
+            StudentModel student = persist(new StudentModel(), "student" + students++);
+            SubmissionModel submission = new SubmissionModel();
+            submission.setTitle("Plan");
+            submission.setDescription("Plan");
+            submission.setGrade(Grade.PENDING);
+            submission.setType(SubmissionType.values()[0]);
+            submission.setUser(student);
+            entityManager.persist(submission);
+            student.setSupervisor(first);
+            student.setRequestedSupervisor(second);
+            student.setRequestedSubmission(submission);
+            student.setConfirmedReaderSubmission(submission);
+        }
+        entityManager.flush();
+    }
+
+    private <T extends UserModel> T persist(T user, String name) {
+        user.setName(name);
+        user.setSurname(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("x");
+        return entityManager.persist(user);
+    }
+
+    private long countQueries(Callable<Object> view) throws Exception {
+        return measure(view).getCount();
+    }
+
+    private QueryStats measure(Callable<Object> view) throws Exception {
+        entityManager.flush();
+        entityManager.clear();
+        return QueryStats.measure(() -> objectMapper.writeValueAsString(view.call()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.api.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryDeltaTest {
+
+    private final Random random = new Random(7);
+
+    private Path work;
+
+    @Before
+    public void createWorkDirectory() throws IOException {
+        work = Files.createTempDirectory("delta-test");
+    }
+
+    @After
+    public void removeWorkDirectory() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(work)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(work);
+    }
+
+    @Test
+    public void editedFileTakesSmallDelta() throws IOException {
+        byte[] base = bytes(512 * 1024);
+        byte[] target = new byte[base.length + 100];
+        System.arraycopy(base, 0, target, 0, 1000);
+        System.arraycopy(bytes(100), 0, target, 1000, 100);
+        System.arraycopy(base, 1000, target, 1100, base.length - 1000);
+        target[300_000] ^= 1;
+
+        byte[] delta = roundTrip(base, target);
+        assertTrue("delta of " + delta.length + " bytes", delta.length < 2 * BinaryDelta.BLOCK_SIZE + 200);
+    }
+
+    @Test
+    public void unrelatedAndEdgeFilesRoundTrip() throws IOException {
+        roundTrip(bytes(100_000), bytes(70_001));
+        roundTrip(new byte[0], bytes(5000));
+        roundTrip(bytes(5000), new byte[0]);
+        roundTrip(bytes(10), bytes(10));
+        byte[] repeated = new byte[50_000];
+        Arrays.fill(repeated, (byte) 'a');
+        roundTrip(repeated, Arrays.copyOf(repeated, 60_003));
+    }
+
+    private byte[] roundTrip(byte[] base, byte[] target) throws IOException {
+        Path baseFile = Files.write(Files.createTempFile(work, "base", ".bin"), base);
+        Path targetFile = Files.write(Files.createTempFile(work, "target", ".bin"), target);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        BinaryDelta.encode(baseFile, targetFile, delta);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        BinaryDelta.apply(baseFile, new ByteArrayInputStream(delta.toByteArray()), Channels.newChannel(result));
+        assertArrayEquals(target, result.toByteArray());
+        return delta.toByteArray();
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
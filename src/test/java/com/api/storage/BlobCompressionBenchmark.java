@@ -0,0 +1,205 @@
+package com.api.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reports write/read throughput and space saved by the compression tier
+ * of {@link FileSystemBlobStore}, compared with storing files as is.
+ *
+ * Run with a directory of sample files as argument, or without arguments
+ * to use a generated corpus of text, CSV and incompressible (PDF-like) files:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.api.storage.BlobCompressionBenchmark [-Dexec.args=corpus/] [-Dlevel=6]
+ */
+public class BlobCompressionBenchmark {
+
+    private static final int ROUNDS = 3;
+    private static final int LEVEL = Integer.getInteger("level", 1);
+
+    public static void main(String[] args) throws Exception {
+        Path work = Files.createTempDirectory("blob-benchmark");
+        try {
+            List<Path> corpus = args.length > 0 ? listFiles(Paths.get(args[0])) : generateCorpus(work.resolve("corpus"));
+            System.out.printf("%-28s %12s %12s %12s %10s %10s%n", "file", "size", "plain", "compressed", "write MB/s", "read MB/s");
+            long totalSize = 0;
+            long totalStored = 0;
+            for (Path file : corpus) {
+                long size = Files.size(file);
+                Result plain = run(work.resolve("plain"), file, false);
+                Result compressed = run(work.resolve("compressed"), file, true);
+                totalSize += size;
+                totalStored += compressed.stored;
+                System.out.printf("%-28s %12d %12d %12d %10.1f %10.1f%n", file.getFileName(), size, plain.stored, compressed.stored,
+                        mbPerSecond(size, compressed.writeNanos), mbPerSecond(size, compressed.readNanos));
+                System.out.printf("%-28s %12s %12s %12s %10.1f %10.1f%n", "  (without compression)", "", "", "",
+                        mbPerSecond(size, plain.writeNanos), mbPerSecond(size, plain.readNanos));
+            }
+            System.out.printf("%nCorpus %d bytes stored in %d bytes, %.1f%% saved%n", totalSize, totalStored,
+                    totalSize == 0 ? 0 : 100.0 * (totalSize - totalStored) / totalSize);
+        } finally {
+            deleteRecursively(work);
+        }
+    }
+
+    private static Result run(Path root, Path file, boolean compression) throws Exception {
+        Result result = new Result();
+        for (int round = 0; round < ROUNDS; round++) {
+            deleteRecursively(root);
+            FileSystemBlobStore store = new FileSystemBlobStore(root.toString(), compression, 0.1, LEVEL);
+            long start = System.nanoTime();
+            StoredBlob blob;
+            try (InputStream in = Files.newInputStream(file)) {
+                blob = store.put(in, Long.MAX_VALUE);
+            }
+            result.writeNanos = Math.min(result.writeNanos, System.nanoTime() - start);
+
+            StoredContent content = store.get(blob.getHash());
+            DigestingChannel sink = new DigestingChannel();
+            start = System.nanoTime();
+            content.transferTo(0, content.getLength(), sink);
+            result.readNanos = Math.min(result.readNanos, System.nanoTime() - start);
+            if (!sink.checksum().equals(blob.getHash())) {
+                throw new IllegalStateException("Round trip mismatch for " + file);
+            }
+            result.stored = storedBytes(root);
+        }
+        return result;
+    }
+
+    private static List<Path> generateCorpus(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(42);
+        String[] words = {"thesis", "supervisor", "method", "result", "analysis", "data", "model", "the", "of", "and", "student", "report"};
+        List<Path> files = new ArrayList<>();
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 8 * 1024 * 1024) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+        }
+        files.add(write(dir.resolve("report.txt"), text.toString().getBytes(StandardCharsets.UTF_8)));
+
+        StringBuilder csv = new StringBuilder("id,student,grade,score\n");
+        for (int i = 0; csv.length() < 8 * 1024 * 1024; i++) {
+            csv.append(i).append(',').append("student").append(random.nextInt(5000)).append(',')
+                    .append("ABCDEF".charAt(random.nextInt(6))).append(',').append(random.nextDouble()).append('\n');
+        }
+        files.add(write(dir.resolve("export.csv"), csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        byte[] noise = new byte[16 * 1024 * 1024];
+        random.nextBytes(noise);
+        files.add(write(dir.resolve("scanned.pdf"), noise));
+
+        byte[] mixed = new byte[8 * 1024 * 1024];
+        for (int i = 0; i < mixed.length; i += 4096) {
+            if ((i / 4096) % 2 == 0) {
+                byte[] block = new byte[Math.min(4096, mixed.length - i)];
+                random.nextBytes(block);
+                System.arraycopy(block, 0, mixed, i, block.length);
+            }
+        }
+        files.add(write(dir.resolve("mixed.docx"), mixed));
+        return files;
+    }
+
+    private static Path write(Path file, byte[] bytes) throws IOException {
+        return Files.write(file, bytes);
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static long storedBytes(Path root) throws IOException {
+        long[] total = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                total[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return total[0];
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static double mbPerSecond(long bytes, long nanos) {
+        return bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    private static class Result {
+        long writeNanos = Long.MAX_VALUE;
+        long readNanos = Long.MAX_VALUE;
+        long stored;
+    }
+
+    private static class DigestingChannel implements WritableByteChannel {
+
+        private final MessageDigest digest;
+
+        DigestingChannel() throws Exception {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            digest.update(src);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        String checksum() {
+            return Checksums.toHex(digest.digest());
+        }
+    }
+}